@@ -0,0 +1,100 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * A minimal benchmark runner.
+ * Runs an operation in timed warmup and measurement iterations on the current thread and reports
+ * the average time and the bytes allocated per scan, the latter through the HotSpot thread allocation counters.
+ * Allocation is summed over all live threads, so work handed to the ForkJoin pool is included; other threads
+ * allocating at the same time are counted too.
+ */
+public class Benchmark {
+
+    /**
+     * The code under measurement. One call processes a fixed number of scans.
+     */
+    public interface Operation {
+        void run() throws Exception;
+    }
+
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASUREMENT_ITERATIONS = 5;
+    private static final long ITERATION_NANOS = 500_000_000;
+
+    private static final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Consumes results so the JIT compiler cannot remove the measured code.
+     */
+    public static volatile long sink;
+
+    public static void consume(long value) {
+        sink += value;
+    }
+
+    public static void consume(double value) {
+        sink += Double.doubleToRawLongBits(value);
+    }
+
+    /**
+     * Runs the operation and prints the result.
+     *
+     * @param name          The name of the benchmark.
+     * @param scansPerCall  The number of scans processed by a single call of the operation.
+     * @param operation     The operation to measure.
+     * @return The average time per scan in ns.
+     * @throws Exception If the operation fails.
+     */
+    public static double run(String name, int scansPerCall, Operation operation) throws Exception {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            iterate(operation);
+        }
+
+        long calls = 0;
+        long nanos = 0;
+        long bytes = 0;
+
+        for (int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+            calls += iterate(operation);
+            nanos += System.nanoTime() - start;
+            bytes += allocatedBytes() - allocatedBefore;
+        }
+
+        double scans = (double) calls * scansPerCall;
+        double nanosPerScan = nanos / scans;
+
+        System.out.printf("%-32s %12.1f ns/scan %12.1f B/scan %12.0f scans/s%n",
+                name, nanosPerScan, bytes / scans, 1e9 / nanosPerScan);
+
+        return nanosPerScan;
+    }
+
+    /**
+     * @return The number of bytes allocated so far by all live threads.
+     */
+    private static long allocatedBytes() {
+        long total = 0;
+        for (long bytes : threadBean.getThreadAllocatedBytes(threadBean.getAllThreadIds())) {
+            if (bytes > 0) {
+                total += bytes; // -1 for a thread that ended meanwhile
+            }
+        }
+        return total;
+    }
+
+    private static long iterate(Operation operation) throws Exception {
+        long calls = 0;
+        long end = System.nanoTime() + ITERATION_NANOS;
+
+        do {
+            operation.run();
+            calls++;
+        } while (System.nanoTime() < end);
+
+        return calls;
+    }
+}
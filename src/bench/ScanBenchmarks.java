@@ -0,0 +1,264 @@
+package bench;
+
+import sick.*;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Benchmarks of every stage of the scan path: framing, decoding, filtering, conversion to Cartesian coordinates
+ * and saving.
+ * Runs on synthetic telegrams from {@link LMS400Simulator}, or on a recorded byte stream
+ * (as received from the device, beginning with a telegram) given as the first argument.
+ */
+public class ScanBenchmarks {
+
+    private static final int NUMBER_OF_SCANS = 1000;
+    private static final int CAPTURE_SCANS = 11400;
+    private static final double SCAN_BUDGET_NANOS = 1e9 / 500; // One scan period at the highest scanning frequency
+
+    /**
+     * A channel reading the same bytes over and over, without copying them into a new buffer.
+     */
+    private static class RepeatingChannel implements ReadableByteChannel {
+        private final ByteBuffer source;
+
+        RepeatingChannel(ByteBuffer source) {
+            this.source = source;
+        }
+
+        void rewind() {
+            source.rewind();
+        }
+
+        @Override
+        public int read(ByteBuffer dst) {
+            if (!source.hasRemaining()) {
+                return -1;
+            }
+
+            int length = Math.min(dst.remaining(), source.remaining());
+            ByteBuffer slice = source.slice();
+            slice.limit(length);
+            dst.put(slice);
+            source.position(source.position() + length);
+            return length;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        ByteBuffer stream = args.length > 0 ? recordedStream(Paths.get(args[0])) : syntheticStream();
+
+        // Split the stream into frames once, for the benchmarks of the later stages
+        Frame[] frames = readFrames(stream);
+        Scan[] scans = decodeFrames(frames);
+
+        System.out.println("Scans: " + frames.length + ", points per scan: " + scans[0].getNumberOfPoints());
+
+        benchmarkFraming(stream, frames.length);
+        benchmarkDecoding(frames);
+        benchmarkFiltering(scans);
+        benchmarkConversion(scans);
+        benchmarkSaving(scans);
+    }
+
+    private static ByteBuffer syntheticStream() {
+        LMS400Simulator simulator = new LMS400Simulator(0);
+        ByteBuffer stream = ByteBuffer.allocateDirect(simulator.getTelegramLength() * NUMBER_OF_SCANS)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        SplittableRandom random = new SplittableRandom(42);
+
+        for (int i = 0; i < NUMBER_OF_SCANS; i++) {
+            simulator.putMeasurement(stream, random);
+        }
+
+        stream.flip();
+        return stream;
+    }
+
+    private static ByteBuffer recordedStream(Path path) throws IOException {
+        byte[] bytes = Files.readAllBytes(path);
+        ByteBuffer stream = ByteBuffer.allocateDirect(bytes.length);
+        stream.put(bytes).flip();
+        return stream;
+    }
+
+    private static Frame[] readFrames(ByteBuffer stream) throws IOException {
+        RepeatingChannel channel = new RepeatingChannel(stream);
+        TelegramReader reader = new TelegramReader(channel);
+        ArrayList<Frame> frames = new ArrayList<>();
+
+        Frame frame = new Frame();
+        while (reader.read(frame)) {
+            if (ScanDecoder.isMeasurement(frame)) {
+                frames.add(frame.copy());
+            }
+        }
+
+        stream.rewind();
+        return frames.toArray(new Frame[0]);
+    }
+
+    private static Scan[] decodeFrames(Frame[] frames) {
+        ScanDecoder decoder = new ScanDecoder();
+        Scan[] scans = new Scan[frames.length];
+
+        for (int i = 0; i < frames.length; i++) {
+            scans[i] = new Scan();
+            decoder.decode(frames[i], scans[i]);
+        }
+
+        return scans;
+    }
+
+    private static void benchmarkFraming(ByteBuffer stream, int numberOfFrames) throws Exception {
+        RepeatingChannel channel = new RepeatingChannel(stream);
+        Frame frame = new Frame();
+
+        Benchmark.run("frame parse", numberOfFrames, () -> {
+            channel.rewind();
+            TelegramReader reader = new TelegramReader(channel);
+            while (reader.read(frame)) {
+                Benchmark.consume(frame.getLength());
+            }
+        });
+    }
+
+    private static void benchmarkDecoding(Frame[] frames) throws Exception {
+        ScanDecoder decoder = new ScanDecoder();
+        Scan scan = new Scan();
+
+        Benchmark.run("distance extraction", frames.length, () -> {
+            for (Frame frame : frames) {
+                decoder.decode(frame, scan);
+                Benchmark.consume(scan.getDistance(0));
+            }
+        });
+
+        // A one minute capture, decoded into preallocated slots
+        List<Frame> capture = new ArrayList<>();
+        while (capture.size() < CAPTURE_SCANS) {
+            capture.addAll(Arrays.asList(frames));
+        }
+        Scan[] slots = new Scan[capture.size()];
+
+        Benchmark.run("distance extraction (parallel)", capture.size(), () -> {
+            Benchmark.consume(decoder.decodeAll(capture, slots));
+        });
+    }
+
+    private static void benchmarkFiltering(Scan[] scans) throws Exception {
+        benchmarkFilter("median filter (5)", scans, new ScanFilterChain(new MedianFilter(5)));
+        benchmarkFilter("outlier filter", scans, new ScanFilterChain(new OutlierFilter(2, 30, 2)));
+        benchmarkFilter("temporal filter (8)", scans, new ScanFilterChain(new TemporalFilter(8, 0.3, 30)));
+        benchmarkFilter("filter chain", scans, new ScanFilterChain(
+                new OutlierFilter(2, 30, 2), new MedianFilter(5), new TemporalFilter(8, 0.3, 30)));
+    }
+
+    private static void benchmarkFilter(String name, Scan[] scans, ScanFilterChain chain) throws Exception {
+        Scan scan = new Scan();
+
+        // Filters work in place, so every scan is copied first; the copy is part of the measured time
+        double nanosPerScan = Benchmark.run(name, scans.length, () -> {
+            for (Scan source : scans) {
+                scan.copyFrom(source);
+                chain.apply(scan);
+                Benchmark.consume(scan.getDistance(0));
+            }
+        });
+
+        if (nanosPerScan > SCAN_BUDGET_NANOS) {
+            System.out.printf("%-32s exceeds the scan period of %.0f ns%n", name, SCAN_BUDGET_NANOS);
+        }
+    }
+
+    private static void benchmarkConversion(Scan[] scans) throws Exception {
+        Benchmark.run("polar to Cartesian (Point)", scans.length, () -> {
+            for (Scan scan : scans) {
+                for (int i = 0; i < scan.getNumberOfPoints(); i++) {
+                    Point point = new Point(scan.getDistance(i), scan.getAngle(i));
+                    Benchmark.consume(point.getX() + point.getY());
+                }
+            }
+        });
+
+        Benchmark.run("polar to Cartesian (table)", scans.length, () -> {
+            for (Scan scan : scans) {
+                for (int i = 0; i < scan.getNumberOfPoints(); i++) {
+                    Benchmark.consume(scan.getX(i) + scan.getY(i));
+                }
+            }
+        });
+    }
+
+    private static void benchmarkSaving(Scan[] scans) throws Exception {
+        Benchmark.run("save text", scans.length, () -> {
+            try (PrintStream ps = new PrintStream(OutputStream.nullOutputStream())) {
+                for (int i = 0; i < scans.length; i++) {
+                    Scan scan = scans[i];
+                    for (int j = 0; j < scan.getNumberOfPoints(); j++) {
+                        ps.println(scan.getX(j) + " " + (double) i + " " + (0 - scan.getY(j)));
+                    }
+                }
+            }
+        });
+
+        Path file = Files.createTempFile("LMS400_bench", ".lms");
+        try {
+            Benchmark.run("save binary", scans.length, () -> {
+                try (ScanFileWriter writer = new ScanFileWriter(file)) {
+                    for (Scan scan : scans) {
+                        writer.write(scan);
+                    }
+                }
+            });
+        } finally {
+            Files.deleteIfExists(file);
+        }
+
+        Path compressedFile = Files.createTempFile("LMS400_bench", ".lmsz");
+        try {
+            Benchmark.run("save compressed", scans.length, () -> {
+                try (CompressedScanWriter writer = new CompressedScanWriter(compressedFile)) {
+                    for (Scan scan : scans) {
+                        writer.write(scan);
+                    }
+                }
+            });
+
+            System.out.printf("%-32s %12.1f B/scan%n", "compressed size",
+                    (double) Files.size(compressedFile) / scans.length);
+
+            try (CompressedScanReader reader = new CompressedScanReader(compressedFile)) {
+                Scan[] slots = new Scan[(int) reader.getNumberOfScans()];
+
+                Benchmark.run("read compressed (parallel)", slots.length, () -> {
+                    reader.readAll(slots);
+                    Benchmark.consume(slots[0].getDistance(0));
+                });
+            }
+        } finally {
+            Files.deleteIfExists(compressedFile);
+        }
+    }
+}
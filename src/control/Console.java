@@ -38,10 +38,6 @@ public class Console {
 
         lms.stopScanning();
 
-        System.out.println("Processing scan data: " + java.time.LocalTime.now());
-
-        lms.process();
-
         String dataFileName = "BOXANDDOC";
 
         System.out.println("Saving data to file: " + java.time.LocalTime.now());
@@ -1,5 +1,6 @@
 package control;
 
+import sick.JmxMetricsRegistry;
 import sick.LMS400;
 
 import javax.swing.*;
@@ -7,6 +8,7 @@ import javax.swing.border.EmptyBorder;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.concurrent.TimeUnit;
 
 public class GUI implements ActionListener {
 
@@ -22,12 +24,19 @@ public class GUI implements ActionListener {
     private JButton scan01minButton;
 
     private JTextField filenameTextField;
+    private JLabel progressLabel;
 
     private int numberOfScans = 1;
+    private long scanDurationMillis = 0; // 0 to perform numberOfScans instead
     private final LMS400 lms;
 
+    private ScanWorker scanWorker = null;
+
+    private static final int PROGRESS_INTERVAL_MS = 250;
+
     public GUI() {
         this.lms = new LMS400();
+        this.lms.registerMetrics(new JmxMetricsRegistry(), "GUI");
     }
 
     public void createWindow() {
@@ -50,6 +59,7 @@ public class GUI implements ActionListener {
         scan01minButton = new JButton("1 Minute Scan");
 
         filenameTextField = new JTextField(20);
+        progressLabel = new JLabel(" ");
 
         // Set up action listeners
         connectButton.addActionListener(this);
@@ -77,7 +87,7 @@ public class GUI implements ActionListener {
 
         communicationPanel.setLayout(new GridLayout(1, 3, 10, 0));
         scanPanel.setLayout(new GridLayout(1, 5, 10, 0));
-        statusPanel.setLayout(new GridLayout(3, 1, 0, 10));
+        statusPanel.setLayout(new GridLayout(4, 1, 0, 10));
 
         communicationPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
         scanPanel.setBorder(new EmptyBorder(0, 10, 10, 10));
@@ -93,6 +103,7 @@ public class GUI implements ActionListener {
         scanPanel.add(scan30sButton);
         scanPanel.add(scan01minButton);
 
+        statusPanel.add(progressLabel);
         statusPanel.add(filenameTextField);
         statusPanel.add(saveButton);
         statusPanel.add(deleteButton);
@@ -115,7 +126,7 @@ public class GUI implements ActionListener {
         }
 
         if (event.getSource() == resetButton) {
-            lms.setReset(true);
+            handleResetButton();
         }
 
         if (event.getSource() == saveButton) {
@@ -128,22 +139,23 @@ public class GUI implements ActionListener {
 
         if (event.getSource() == oneScanButton) {
             numberOfScans = 1;
+            scanDurationMillis = 0;
         }
 
         if (event.getSource() == scan01sButton) {
-            numberOfScans = 190;
+            scanDurationMillis = 1000;
         }
 
         if (event.getSource() == scan10sButton) {
-            numberOfScans = 1900;
+            scanDurationMillis = 10_000;
         }
 
         if (event.getSource() == scan30sButton) {
-            numberOfScans = 5700;
+            scanDurationMillis = 30_000;
         }
 
         if (event.getSource() == scan01minButton) {
-            numberOfScans = 11400;
+            scanDurationMillis = 60_000;
         }
     }
 
@@ -160,14 +172,35 @@ public class GUI implements ActionListener {
     }
 
     private void handleScanButton() {
-        if (lms.scan(numberOfScans)) {
-            lms.process();
+        if (scanWorker != null) {
+            return; // Scan already in progress
+        }
+
+        connectButton.setEnabled(false);
+        scanButton.setEnabled(false);
+
+        scanWorker = new ScanWorker(numberOfScans, scanDurationMillis);
+        scanWorker.execute();
+    }
+
+    private void handleResetButton() {
+        if (scanWorker != null) {
+            lms.setReset(true); // The worker stops scanning and finishes
+        }
+    }
+
+    private void handleScanFinished(boolean isSuccessful) {
+        scanWorker = null;
+        connectButton.setEnabled(true);
+
+        if (isSuccessful) {
             scanButton.setEnabled(false);
             resetButton.setEnabled(false);
             saveButton.setEnabled(true);
             deleteButton.setEnabled(true);
             JOptionPane.showMessageDialog(null, "Scan completed successfully.");
         } else {
+            scanButton.setEnabled(true);
             JOptionPane.showMessageDialog(null, "Failed to perform the scan.");
         }
     }
@@ -182,7 +215,7 @@ public class GUI implements ActionListener {
         }
 
         lms.clearScanData();
-        lms.clearStringData();
+        lms.clearTelegramData();
         scanButton.setEnabled(true);
         resetButton.setEnabled(true);
         saveButton.setEnabled(false);
@@ -192,11 +225,87 @@ public class GUI implements ActionListener {
 
     private void handleDeleteButton() {
         lms.clearScanData();
-        lms.clearStringData();
+        lms.clearTelegramData();
         scanButton.setEnabled(true);
         resetButton.setEnabled(true);
         saveButton.setEnabled(false);
         deleteButton.setEnabled(false);
         JOptionPane.showMessageDialog(null, "Data deleted.");
     }
-}
\ No newline at end of file
+
+    /**
+     * Performs the scan and processing off the event dispatch thread.
+     * A timer on the event dispatch thread shows the number of received scans and the data rates meanwhile.
+     */
+    private class ScanWorker extends SwingWorker<Boolean, Void> {
+
+        private final int requestedScans;
+        private final long durationMillis;
+        private final long startTime;
+        private final long initialScans;
+        private final Timer progressTimer;
+
+        private long lastTime;
+        private long lastFrames;
+        private long lastBytes;
+
+        ScanWorker(int requestedScans, long durationMillis) {
+            this.requestedScans = requestedScans;
+            this.durationMillis = durationMillis;
+            this.startTime = System.nanoTime();
+            this.initialScans = lms.getNumberOfCollectedScans();
+            this.lastTime = System.nanoTime();
+            this.lastFrames = lms.getReceivedFrames();
+            this.lastBytes = lms.getReceivedBytes();
+
+            this.progressTimer = new Timer(PROGRESS_INTERVAL_MS, event -> updateProgress());
+            this.progressTimer.start();
+        }
+
+        @Override
+        protected Boolean doInBackground() {
+            return durationMillis > 0
+                    ? lms.scanFor(durationMillis, TimeUnit.MILLISECONDS)
+                    : lms.scan(requestedScans);
+        }
+
+        @Override
+        protected void done() {
+            progressTimer.stop();
+            updateProgress();
+
+            boolean isSuccessful = false;
+            try {
+                isSuccessful = get();
+            } catch (Exception e) {
+                e.printStackTrace(); // Handle or log the exception
+            }
+
+            handleScanFinished(isSuccessful);
+        }
+
+        private void updateProgress() {
+            long time = System.nanoTime();
+            long frames = lms.getReceivedFrames();
+            long bytes = lms.getReceivedBytes();
+            double seconds = (time - lastTime) / 1e9;
+
+            if (seconds <= 0) {
+                return;
+            }
+
+            long receivedScans = lms.getNumberOfCollectedScans() - initialScans;
+            String target = durationMillis > 0
+                    ? String.format("%d in %.1f/%.0f s", receivedScans, Math.min((time - startTime) / 1e9,
+                            durationMillis / 1e3), durationMillis / 1e3)
+                    : String.format("%d/%d", receivedScans, requestedScans);
+
+            progressLabel.setText(String.format("Scans: %s   %.0f scans/s   %.1f kB/s   lost: %d",
+                    target, (frames - lastFrames) / seconds, (bytes - lastBytes) / seconds / 1024, lms.getLostScans()));
+
+            lastTime = time;
+            lastFrames = frames;
+            lastBytes = bytes;
+        }
+    }
+}
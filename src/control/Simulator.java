@@ -0,0 +1,25 @@
+package control;
+
+import sick.LMS400Simulator;
+
+import java.io.IOException;
+
+public class Simulator {
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 2111;
+        double scanFrequency = args.length > 1 ? Double.parseDouble(args[1]) : 190;
+        int numberOfPoints = args.length > 2 ? Integer.parseInt(args[2]) : 280;
+        double noise = args.length > 3 ? Double.parseDouble(args[3]) : 2.0;
+        double dropoutRate = args.length > 4 ? Double.parseDouble(args[4]) : 0.0;
+
+        LMS400Simulator simulator = new LMS400Simulator(port, scanFrequency, numberOfPoints,
+                550000, 2500, 1500, noise, dropoutRate);
+
+        System.out.println("Simulator listening on port " + simulator.start() + ": " + java.time.LocalTime.now());
+        System.out.println("Press Enter to stop.");
+
+        System.in.read();
+        simulator.close();
+    }
+}
@@ -0,0 +1,335 @@
+package sick;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters and histograms of the acquisition pipeline of one {@link LMS400}.
+ * The threads of the pipeline only update counters they own with plain ordered stores,
+ * and gauges such as the queue depth are read from the pipeline when asked for,
+ * so the metrics cost close to nothing while nobody reads them.
+ * Timing of every decoded scan is off unless enabled, for example through JMX after registering the metrics
+ * with a {@link JmxMetricsRegistry}.
+ */
+public class AcquisitionMetrics implements AcquisitionMetricsMBean {
+
+    private static final com.sun.management.ThreadMXBean THREADS = threadMXBean();
+
+    private final LMS400 device;
+
+    private final AtomicLong receivedFrames = new AtomicLong();      // Written by the acquisition thread
+    private final AtomicLong receivedBytes = new AtomicLong();       // Written by the acquisition thread
+    private final AtomicLong unexpectedTelegrams = new AtomicLong(); // Written by the acquisition thread
+    private final AtomicLong decodedScans = new AtomicLong();        // Written by the decoder thread
+    private final AtomicLong allocatingDecodes = new AtomicLong();   // Written by the decoder thread
+    private final AtomicLong unexpectedReplies = new AtomicLong();
+    private final AtomicLong errorReplies = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();          // Written by the acquisition thread
+    private final LatencyHistogram decodeTime = new LatencyHistogram();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private volatile int maxQueueDepth = 0; // Written by the decoder thread
+    private volatile boolean isTimingEnabled = false;
+
+    private long lastSampleTime = System.nanoTime();
+    private long lastSampleFrames = 0;
+    private long lastSampleBytes = 0;
+    private double framesPerSecond = 0;
+    private double bytesPerSecond = 0;
+
+    AcquisitionMetrics(LMS400 device) {
+        this.device = device;
+    }
+
+    void frameReceived(int length) {
+        receivedFrames.lazySet(receivedFrames.get() + 1);
+        receivedBytes.lazySet(receivedBytes.get() + length);
+    }
+
+    void reconnected() {
+        reconnects.lazySet(reconnects.get() + 1);
+    }
+
+    void unexpectedTelegram() {
+        unexpectedTelegrams.lazySet(unexpectedTelegrams.get() + 1);
+    }
+
+    /**
+     * @param result The result of checking an answer: 1 if expected, -1 if an error, 0 if unexpected.
+     */
+    void replyChecked(int result) {
+        if (result == 0) {
+            unexpectedReplies.incrementAndGet();
+        } else if (result < 0) {
+            errorReplies.incrementAndGet();
+        }
+    }
+
+    void scanDecoded() {
+        decodedScans.lazySet(decodedScans.get() + 1);
+    }
+
+    /**
+     * Records the queue depth seen by the decoder thread. Only called while timing is enabled.
+     */
+    void recordQueueDepth(int depth) {
+        if (depth > maxQueueDepth) {
+            maxQueueDepth = depth;
+        }
+    }
+
+    /**
+     * Records the decoding of one scan. Only called while timing is enabled.
+     *
+     * @param nanos          The time spent decoding and filtering in ns.
+     * @param allocatedBytes The number of bytes the decoder thread allocated meanwhile.
+     */
+    void recordDecode(long nanos, long allocatedBytes) {
+        decodeTime.record(nanos);
+        if (allocatedBytes > 0) {
+            allocatingDecodes.lazySet(allocatingDecodes.get() + 1);
+        }
+    }
+
+    /**
+     * Records the time from receiving a telegram until its scan was passed to the listeners.
+     * Only called while timing is enabled.
+     */
+    void recordLatency(long nanos) {
+        latency.record(nanos);
+    }
+
+    /**
+     * @return The number of bytes the current thread has allocated, or 0 if not supported.
+     */
+    static long currentThreadAllocatedBytes() {
+        return THREADS != null ? THREADS.getThreadAllocatedBytes(Thread.currentThread().getId()) : 0;
+    }
+
+    private static com.sun.management.ThreadMXBean threadMXBean() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean
+                && ((com.sun.management.ThreadMXBean) bean).isThreadAllocatedMemorySupported()) {
+            return (com.sun.management.ThreadMXBean) bean;
+        }
+        return null;
+    }
+
+    @Override
+    public long getReceivedFrames() {
+        return receivedFrames.get();
+    }
+
+    @Override
+    public long getReceivedBytes() {
+        return receivedBytes.get();
+    }
+
+    /**
+     * @return The number of telegrams per second since the rates were last read, at most once per second.
+     */
+    @Override
+    public double getFramesPerSecond() {
+        sampleRates();
+        return framesPerSecond;
+    }
+
+    /**
+     * @return The number of payload bytes per second since the rates were last read, at most once per second.
+     */
+    @Override
+    public double getBytesPerSecond() {
+        sampleRates();
+        return bytesPerSecond;
+    }
+
+    private synchronized void sampleRates() {
+        long time = System.nanoTime();
+        double seconds = (time - lastSampleTime) / 1e9;
+
+        if (seconds < 1) {
+            return; // Keep the previous rates, so reading both rates gives a consistent pair
+        }
+
+        long frames = receivedFrames.get();
+        long bytes = receivedBytes.get();
+        framesPerSecond = (frames - lastSampleFrames) / seconds;
+        bytesPerSecond = (bytes - lastSampleBytes) / seconds;
+
+        lastSampleTime = time;
+        lastSampleFrames = frames;
+        lastSampleBytes = bytes;
+    }
+
+    @Override
+    public long getChecksumErrors() {
+        return device.getChecksumErrors();
+    }
+
+    @Override
+    public long getFramingErrors() {
+        return device.getFramingErrors();
+    }
+
+    @Override
+    public long getDiscardedBytes() {
+        return device.getDiscardedBytes();
+    }
+
+    /**
+     * @return The number of times the connection was lost and reestablished.
+     */
+    @Override
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    /**
+     * @return The number of answers that did not belong to any command sent.
+     */
+    @Override
+    public long getUnexpectedTelegrams() {
+        return unexpectedTelegrams.get();
+    }
+
+    /**
+     * @return The number of answers to a command that differed from the expected answer.
+     */
+    @Override
+    public long getUnexpectedReplies() {
+        return unexpectedReplies.get();
+    }
+
+    /**
+     * @return The number of commands answered with a SOPAS fault.
+     */
+    @Override
+    public long getErrorReplies() {
+        return errorReplies.get();
+    }
+
+    @Override
+    public long getDroppedFrames() {
+        return device.getDroppedFrames();
+    }
+
+    @Override
+    public long getLostScans() {
+        return device.getLostScans();
+    }
+
+    @Override
+    public long getDroppedScans() {
+        return device.getDroppedScans();
+    }
+
+    /**
+     * @return The number of telegrams waiting for the decoder thread.
+     */
+    @Override
+    public int getQueueDepth() {
+        return device.getQueueDepth();
+    }
+
+    /**
+     * @return The largest queue depth seen by the decoder thread while timing was enabled.
+     */
+    @Override
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    @Override
+    public long getDecodedScans() {
+        return decodedScans.get();
+    }
+
+    @Override
+    public double getDecodeTimeMeanNanos() {
+        return decodeTime.getMean();
+    }
+
+    @Override
+    public long getDecodeTimeP99Nanos() {
+        return decodeTime.getPercentile(99);
+    }
+
+    @Override
+    public long getDecodeTimeMaxNanos() {
+        return decodeTime.getMax();
+    }
+
+    @Override
+    public double getLatencyMeanNanos() {
+        return latency.getMean();
+    }
+
+    @Override
+    public long getLatencyP99Nanos() {
+        return latency.getPercentile(99);
+    }
+
+    @Override
+    public long getLatencyMaxNanos() {
+        return latency.getMax();
+    }
+
+    /**
+     * @return The buckets of the latency histogram, see {@link LatencyHistogram}.
+     */
+    @Override
+    public long[] getLatencyHistogram() {
+        return latency.getBuckets();
+    }
+
+    public LatencyHistogram getDecodeTime() {
+        return decodeTime;
+    }
+
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * @return The number of decoded scans for which the decoder allocated heap memory, which the
+     *         steady-state decoding path should never do.
+     */
+    @Override
+    public long getAllocatingDecodes() {
+        return allocatingDecodes.get();
+    }
+
+    /**
+     * @return The number of bytes the decoder thread has allocated, or -1 if unknown.
+     */
+    @Override
+    public long getDecoderAllocatedBytes() {
+        Thread thread = device.getDecoderThread();
+        return THREADS != null && thread != null ? THREADS.getThreadAllocatedBytes(thread.getId()) : -1;
+    }
+
+    @Override
+    public boolean isTimingEnabled() {
+        return isTimingEnabled;
+    }
+
+    /**
+     * Enables recording of the queue depth, decode time, latency and allocations of every decoded scan.
+     *
+     * @param isTimingEnabled {@code true} to record.
+     */
+    @Override
+    public void setTimingEnabled(boolean isTimingEnabled) {
+        this.isTimingEnabled = isTimingEnabled;
+    }
+
+    /**
+     * Clears the histograms and the maximum queue depth. The counters keep counting.
+     */
+    @Override
+    public void reset() {
+        decodeTime.reset();
+        latency.reset();
+        maxQueueDepth = 0;
+    }
+}
@@ -0,0 +1,65 @@
+package sick;
+
+/**
+ * Management interface of the {@link AcquisitionMetrics} of one device.
+ */
+public interface AcquisitionMetricsMBean {
+
+    long getReceivedFrames();
+
+    long getReceivedBytes();
+
+    double getFramesPerSecond();
+
+    double getBytesPerSecond();
+
+    long getChecksumErrors();
+
+    long getFramingErrors();
+
+    long getDiscardedBytes();
+
+    long getReconnects();
+
+    long getUnexpectedTelegrams();
+
+    long getUnexpectedReplies();
+
+    long getErrorReplies();
+
+    long getDroppedFrames();
+
+    long getLostScans();
+
+    long getDroppedScans();
+
+    int getQueueDepth();
+
+    int getMaxQueueDepth();
+
+    long getDecodedScans();
+
+    double getDecodeTimeMeanNanos();
+
+    long getDecodeTimeP99Nanos();
+
+    long getDecodeTimeMaxNanos();
+
+    double getLatencyMeanNanos();
+
+    long getLatencyP99Nanos();
+
+    long getLatencyMaxNanos();
+
+    long[] getLatencyHistogram();
+
+    long getAllocatingDecodes();
+
+    long getDecoderAllocatedBytes();
+
+    boolean isTimingEnabled();
+
+    void setTimingEnabled(boolean isTimingEnabled);
+
+    void reset();
+}
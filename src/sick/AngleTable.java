@@ -0,0 +1,72 @@
+package sick;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed cosine and sine values for an angle grid.
+ * The grid is defined by the starting angle and the angular resolution, both in 1/10000 degree.
+ * Tables are cached and shared by every scan with the same grid,
+ * so converting a point to Cartesian coordinates costs a single multiplication per axis.
+ */
+public class AngleTable {
+
+    private static final ConcurrentHashMap<Long, AngleTable> cache = new ConcurrentHashMap<>();
+
+    private final int startingAngle;
+    private final int angularResolution;
+    private final double[] cos;
+    private final double[] sin;
+
+    private AngleTable(int startingAngle, int angularResolution, int numberOfPoints) {
+        this.startingAngle = startingAngle;
+        this.angularResolution = angularResolution;
+        this.cos = new double[numberOfPoints];
+        this.sin = new double[numberOfPoints];
+
+        for (int i = 0; i < numberOfPoints; i++) {
+            double angleRad = Math.toRadians((startingAngle + (double) angularResolution * i) / 10000);
+            cos[i] = Math.cos(angleRad);
+            sin[i] = Math.sin(angleRad);
+        }
+    }
+
+    /**
+     * Returns the cached table for the given grid, creating it if it does not exist or is too short.
+     *
+     * @param startingAngle     The angle of the first point in 1/10000 degree.
+     * @param angularResolution The angle between consecutive points in 1/10000 degree.
+     * @param numberOfPoints    The minimum number of points the table has to cover.
+     * @return The table for the grid.
+     */
+    public static AngleTable get(int startingAngle, int angularResolution, int numberOfPoints) {
+        long key = ((long) startingAngle << 32) | (angularResolution & 0xFFFFFFFFL);
+
+        AngleTable table = cache.get(key);
+        if (table == null || table.size() < numberOfPoints) {
+            table = cache.compute(key, (k, current) -> current != null && current.size() >= numberOfPoints
+                    ? current
+                    : new AngleTable(startingAngle, angularResolution, numberOfPoints));
+        }
+        return table;
+    }
+
+    public int getStartingAngle() {
+        return startingAngle;
+    }
+
+    public int getAngularResolution() {
+        return angularResolution;
+    }
+
+    public int size() {
+        return cos.length;
+    }
+
+    public double cos(int index) {
+        return cos[index];
+    }
+
+    public double sin(int index) {
+        return sin[index];
+    }
+}
@@ -0,0 +1,209 @@
+package sick;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Layout and codec of the compressed scan file written by {@link CompressedScanWriter} and read by
+ * {@link CompressedScanReader}. All values are little-endian.
+ *
+ * <pre>
+ * Header (64 bytes):
+ *   magic "LMSZ" (4), version (2), flags (2, bit 0 set if scans hold remissions),
+ *   starting angle (4), angular resolution (4), number of points (4), scans per block (4),
+ *   start time in ms since the epoch (8), start time as {@link System#nanoTime()} (8),
+ *   number of scans (8), scanning frequency in 1/100 Hz (4, 0 if unknown), reserved (12)
+ * Block, repeated:
+ *   payload length (4), number of scans (4), timestamp of the first scan (8), payload
+ * Payload, one entry per scan:
+ *   timestamp difference to the previous scan (zigzag varint),
+ *   sequence number difference to the previous scan, or to -1 for the first scan of a block (zigzag varint),
+ *   distances, remissions if flagged
+ * </pre>
+ * Distances and remissions are stored as the difference to the same point of the previous scan of the block,
+ * the first scan of a block as is, so every block decodes on its own. The differences are zigzag encoded and
+ * bit-packed in groups of {@value #GROUP_SIZE} points: one byte with the bit width of the largest value
+ * of the group, followed by the {@value #GROUP_SIZE} values in exactly twice that many bytes.
+ */
+final class CompressedScanFormat {
+
+    static final int MAGIC = 0x5A534D4C; // "LMSZ" read as a little-endian int
+    static final short VERSION = 2;
+
+    static final int HEADER_LENGTH = 64;
+    static final int BLOCK_HEADER_LENGTH = 16;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int FLAGS_OFFSET = 6;
+    static final int STARTING_ANGLE_OFFSET = 8;
+    static final int ANGULAR_RESOLUTION_OFFSET = 12;
+    static final int NUMBER_OF_POINTS_OFFSET = 16;
+    static final int SCANS_PER_BLOCK_OFFSET = 20;
+    static final int START_TIME_OFFSET = 24;
+    static final int START_NANO_TIME_OFFSET = 32;
+    static final int NUMBER_OF_SCANS_OFFSET = 40;
+    static final int SCAN_FREQUENCY_OFFSET = 48;
+
+    static final int PAYLOAD_LENGTH_OFFSET = 0;
+    static final int BLOCK_SCANS_OFFSET = 4;
+    static final int FIRST_TIMESTAMP_OFFSET = 8;
+
+    static final short FLAG_REMISSION = 1;
+
+    static final int GROUP_SIZE = 16;
+
+    private static final int MAX_VARINT_LENGTH = 10;
+    private static final int MAX_WIDTH = 17; // The zigzag encoded difference of two unsigned 16-bit values
+
+    private CompressedScanFormat() {
+    }
+
+    /**
+     * @return The largest number of payload bytes a single scan can take.
+     */
+    static int maxEncodedSize(int numberOfPoints, boolean hasRemission) {
+        int groups = (numberOfPoints + GROUP_SIZE - 1) / GROUP_SIZE;
+        int values = groups * (1 + GROUP_SIZE * MAX_WIDTH / 8);
+        return 2 * MAX_VARINT_LENGTH + (hasRemission ? 2 : 1) * values;
+    }
+
+    /**
+     * Puts the header for scans on the grid of the given scan at the current position of the buffer.
+     */
+    static void putHeader(ByteBuffer buffer, Scan scan, int scansPerBlock) {
+        int start = buffer.position();
+
+        buffer.putInt(start + MAGIC_OFFSET, MAGIC);
+        buffer.putShort(start + VERSION_OFFSET, VERSION);
+        buffer.putShort(start + FLAGS_OFFSET, scan.hasRemission() ? FLAG_REMISSION : 0);
+        buffer.putInt(start + STARTING_ANGLE_OFFSET, scan.getStartingAngle());
+        buffer.putInt(start + ANGULAR_RESOLUTION_OFFSET, scan.getAngularResolution());
+        buffer.putInt(start + NUMBER_OF_POINTS_OFFSET, scan.getNumberOfPoints());
+        buffer.putInt(start + SCANS_PER_BLOCK_OFFSET, scansPerBlock);
+        buffer.putLong(start + START_TIME_OFFSET, System.currentTimeMillis());
+        buffer.putLong(start + START_NANO_TIME_OFFSET, System.nanoTime());
+        buffer.putLong(start + NUMBER_OF_SCANS_OFFSET, 0);
+        buffer.putInt(start + SCAN_FREQUENCY_OFFSET, scan.getScanFrequency());
+
+        for (int i = SCAN_FREQUENCY_OFFSET + 4; i < HEADER_LENGTH; i++) {
+            buffer.put(start + i, (byte) 0);
+        }
+
+        buffer.position(start + HEADER_LENGTH);
+    }
+
+    /**
+     * Encodes values as differences to the previous values and copies them into the previous values.
+     *
+     * @param buffer   The buffer to put the encoded values at its current position.
+     * @param values   The values to encode.
+     * @param previous The values of the previous scan, all 0 for the first scan of a block.
+     * @param length   The number of values.
+     */
+    static void encode(ByteBuffer buffer, int[] values, int[] previous, int length) {
+        for (int start = 0; start < length; start += GROUP_SIZE) {
+            int end = Math.min(start + GROUP_SIZE, length);
+
+            int bits = 0;
+            for (int i = start; i < end; i++) {
+                bits |= zigzag(values[i] - previous[i]);
+            }
+
+            int width = 32 - Integer.numberOfLeadingZeros(bits);
+            buffer.put((byte) width);
+
+            // Pack the group, padded with zeros to a full group, into exactly 2 * width bytes
+            long accumulator = 0;
+            int pending = 0;
+            for (int i = start; i < start + GROUP_SIZE; i++) {
+                long value = i < end ? zigzag(values[i] - previous[i]) & 0xFFFFFFFFL : 0;
+                accumulator |= value << pending;
+                pending += width;
+
+                while (pending >= 8) {
+                    buffer.put((byte) accumulator);
+                    accumulator >>>= 8;
+                    pending -= 8;
+                }
+            }
+
+            System.arraycopy(values, start, previous, start, end - start);
+        }
+    }
+
+    /**
+     * Decodes values encoded by {@link #encode} at the current position of the buffer
+     * and copies them into the previous values.
+     *
+     * @param buffer   The buffer holding the encoded values.
+     * @param values   The array to fill with the decoded values.
+     * @param previous The values of the previous scan, all 0 for the first scan of a block.
+     * @param length   The number of values.
+     */
+    static void decode(ByteBuffer buffer, int[] values, int[] previous, int length) {
+        int position = buffer.position();
+        int limit = buffer.limit();
+
+        for (int start = 0; start < length; start += GROUP_SIZE) {
+            int end = Math.min(start + GROUP_SIZE, length);
+            int width = buffer.get(position++);
+            int mask = (int) ((1L << width) - 1);
+            int bit = 0;
+
+            if (position + 2 * width + 3 <= limit) {
+                // Every value lies within the 32 bits starting at its first byte
+                for (int i = start; i < end; i++, bit += width) {
+                    int word = buffer.getInt(position + (bit >>> 3));
+                    int value = previous[i] + unzigzag((word >>> (bit & 7)) & mask);
+                    values[i] = value;
+                    previous[i] = value;
+                }
+            } else {
+                // The last group of the buffer, read byte by byte to stay within its limit
+                for (int i = start; i < end; i++, bit += width) {
+                    long word = 0;
+                    for (int b = 0; b < 4 && position + (bit >>> 3) + b < limit; b++) {
+                        word |= (buffer.get(position + (bit >>> 3) + b) & 0xFFL) << (8 * b);
+                    }
+                    int value = previous[i] + unzigzag((int) (word >>> (bit & 7)) & mask);
+                    values[i] = value;
+                    previous[i] = value;
+                }
+            }
+
+            position += 2 * width;
+        }
+
+        buffer.position(position);
+    }
+
+    static void putVarLong(ByteBuffer buffer, long value) {
+        long bits = (value << 1) ^ (value >> 63);
+        while ((bits & ~0x7FL) != 0) {
+            buffer.put((byte) ((bits & 0x7F) | 0x80));
+            bits >>>= 7;
+        }
+        buffer.put((byte) bits);
+    }
+
+    static long getVarLong(ByteBuffer buffer) {
+        long bits = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            bits |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+
+        return (bits >>> 1) ^ -(bits & 1);
+    }
+
+    private static int zigzag(int value) {
+        return (value << 1) ^ (value >> 31);
+    }
+
+    private static int unzigzag(int value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
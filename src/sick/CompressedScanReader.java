@@ -0,0 +1,297 @@
+package sick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.stream.IntStream;
+
+import static sick.CompressedScanFormat.*;
+
+/**
+ * Reads a compressed scan file, see {@link CompressedScanFormat}, through memory mapping.
+ * The blocks are located once when opening the file; each block decodes on its own, so blocks can be decoded
+ * in any order and in parallel. Reading single scans decodes their block up to the scan.
+ * Files larger than a single mapping are mapped in segments holding whole blocks.
+ */
+public class CompressedScanReader implements Closeable {
+
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final ArrayList<MappedByteBuffer> segments = new ArrayList<>();
+
+    private final int startingAngle;
+    private final int angularResolution;
+    private final int numberOfPoints;
+    private final int scanFrequency;
+    private final boolean hasRemission;
+    private final long startTime;
+    private final long startNanoTime;
+
+    // Location of every block
+    private final int[] blockSegments;
+    private final int[] blockPositions;
+    private final long[] firstScans;
+    private final long numberOfScans;
+
+    public CompressedScanReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            if (channel.size() < HEADER_LENGTH) {
+                throw new IOException("Not a compressed scan file: " + path);
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Not a compressed scan file: " + path);
+            }
+
+            if (header.getShort(VERSION_OFFSET) != VERSION) {
+                throw new IOException("Unsupported compressed scan file version: " + header.getShort(VERSION_OFFSET));
+            }
+
+            this.startingAngle = header.getInt(STARTING_ANGLE_OFFSET);
+            this.angularResolution = header.getInt(ANGULAR_RESOLUTION_OFFSET);
+            this.numberOfPoints = header.getInt(NUMBER_OF_POINTS_OFFSET);
+            this.scanFrequency = header.getInt(SCAN_FREQUENCY_OFFSET);
+            this.hasRemission = (header.getShort(FLAGS_OFFSET) & FLAG_REMISSION) != 0;
+            this.startTime = header.getLong(START_TIME_OFFSET);
+            this.startNanoTime = header.getLong(START_NANO_TIME_OFFSET);
+
+            // Walk the block headers rather than trusting the header, so an unfinished capture stays readable
+            ArrayList<long[]> blocks = new ArrayList<>(); // File offset, number of scans
+            ByteBuffer blockHeader = ByteBuffer.allocate(BLOCK_HEADER_LENGTH).order(ByteOrder.LITTLE_ENDIAN);
+            long offset = HEADER_LENGTH;
+            long scans = 0;
+
+            while (offset + BLOCK_HEADER_LENGTH <= channel.size()) {
+                blockHeader.clear();
+                while (blockHeader.hasRemaining()) {
+                    channel.read(blockHeader, offset + blockHeader.position()); // Within the file, never at its end
+                }
+
+                long blockLength = BLOCK_HEADER_LENGTH + (blockHeader.getInt(PAYLOAD_LENGTH_OFFSET) & 0xFFFFFFFFL);
+                int blockScans = blockHeader.getInt(BLOCK_SCANS_OFFSET);
+
+                if (blockScans <= 0 || offset + blockLength > channel.size()) {
+                    break; // Truncated block at the end of an unfinished capture
+                }
+
+                blocks.add(new long[]{offset, blockLength, scans});
+                scans += blockScans;
+                offset += blockLength;
+            }
+
+            this.numberOfScans = scans;
+            this.blockSegments = new int[blocks.size()];
+            this.blockPositions = new int[blocks.size()];
+            this.firstScans = new long[blocks.size()];
+            mapSegments(blocks);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void mapSegments(ArrayList<long[]> blocks) throws IOException {
+        int first = 0;
+
+        while (first < blocks.size()) {
+            long start = blocks.get(first)[0];
+            int last = first;
+
+            while (last + 1 < blocks.size()
+                    && blocks.get(last + 1)[0] + blocks.get(last + 1)[1] - start <= MAX_SEGMENT_SIZE) {
+                last++;
+            }
+
+            long end = blocks.get(last)[0] + blocks.get(last)[1];
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            segment.order(ByteOrder.LITTLE_ENDIAN);
+            segments.add(segment);
+
+            for (int block = first; block <= last; block++) {
+                blockSegments[block] = segments.size() - 1;
+                blockPositions[block] = (int) (blocks.get(block)[0] - start);
+                firstScans[block] = blocks.get(block)[2];
+            }
+
+            first = last + 1;
+        }
+    }
+
+    public long getNumberOfScans() {
+        return numberOfScans;
+    }
+
+    public int getNumberOfBlocks() {
+        return firstScans.length;
+    }
+
+    /**
+     * @param block The index of the block.
+     * @return The number of scans of the block.
+     */
+    public int getBlockScans(int block) {
+        long next = block + 1 < firstScans.length ? firstScans[block + 1] : numberOfScans;
+        return (int) (next - firstScans[block]);
+    }
+
+    public int getStartingAngle() {
+        return startingAngle;
+    }
+
+    public int getAngularResolution() {
+        return angularResolution;
+    }
+
+    public int getNumberOfPoints() {
+        return numberOfPoints;
+    }
+
+    public boolean hasRemission() {
+        return hasRemission;
+    }
+
+    /**
+     * @return The scanning frequency in 1/100 Hz, 0 if unknown.
+     */
+    public int getScanFrequency() {
+        return scanFrequency;
+    }
+
+    /**
+     * @return The wall-clock time of the start of the capture in ms since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Converts the timestamp of a scan to wall-clock time.
+     *
+     * @param timestamp The timestamp of a scan read from the file.
+     * @return The time the scan was received in ms since the epoch.
+     */
+    public long getTime(long timestamp) {
+        return startTime + (timestamp - startNanoTime) / 1_000_000;
+    }
+
+    /**
+     * Decodes a block into consecutive scan records.
+     *
+     * @param block The index of the block.
+     * @param scans The records to fill, starting at index 0; empty slots are filled with new records.
+     *              Must hold at least {@link #getBlockScans(int)} records.
+     */
+    public void readBlock(int block, Scan[] scans) {
+        readBlock(block, scans, 0, getBlockScans(block));
+    }
+
+    /**
+     * Reads a scan into the given record, decoding its block up to the scan.
+     *
+     * @param index The index of the scan.
+     * @param scan  The scan record to fill.
+     */
+    public void read(long index, Scan scan) {
+        if (index < 0 || index >= numberOfScans) {
+            throw new IndexOutOfBoundsException("Scan " + index + " of " + numberOfScans);
+        }
+
+        int block = findBlock(index);
+        int scanInBlock = (int) (index - firstScans[block]);
+
+        ByteBuffer buffer = blockBuffer(block);
+        long timestamp = buffer.getLong(buffer.position() - BLOCK_HEADER_LENGTH + FIRST_TIMESTAMP_OFFSET);
+        long sequenceNumber = -1;
+        int[] previousDistances = new int[numberOfPoints];
+        int[] previousRemissions = new int[hasRemission ? numberOfPoints : 0];
+
+        for (int i = 0; i <= scanInBlock; i++) {
+            decodeScan(buffer, timestamp, sequenceNumber, scan, previousDistances, previousRemissions);
+            timestamp = scan.getTimestamp();
+            sequenceNumber = scan.getSequenceNumber();
+        }
+    }
+
+    /**
+     * Decodes every scan of the file, in parallel on the common ForkJoin pool, one block per task.
+     *
+     * @param scans The slots for the decoded scans, at least {@link #getNumberOfScans()} long.
+     *              Empty slots are filled with new records.
+     */
+    public void readAll(Scan[] scans) {
+        IntStream.range(0, getNumberOfBlocks()).parallel()
+                .forEach(block -> readBlock(block, scans, (int) firstScans[block], getBlockScans(block)));
+    }
+
+    private void readBlock(int block, Scan[] scans, int first, int count) {
+        ByteBuffer buffer = blockBuffer(block);
+        long timestamp = buffer.getLong(buffer.position() - BLOCK_HEADER_LENGTH + FIRST_TIMESTAMP_OFFSET);
+        long sequenceNumber = -1;
+        int[] previousDistances = new int[numberOfPoints];
+        int[] previousRemissions = new int[hasRemission ? numberOfPoints : 0];
+
+        for (int i = first; i < first + count; i++) {
+            if (scans[i] == null) {
+                scans[i] = new Scan(numberOfPoints);
+            }
+            decodeScan(buffer, timestamp, sequenceNumber, scans[i], previousDistances, previousRemissions);
+            timestamp = scans[i].getTimestamp();
+            sequenceNumber = scans[i].getSequenceNumber();
+        }
+    }
+
+    private void decodeScan(ByteBuffer buffer, long previousTimestamp, long previousSequenceNumber, Scan scan,
+                            int[] previousDistances, int[] previousRemissions) {
+        scan.setGrid(startingAngle, angularResolution, numberOfPoints, scanFrequency);
+        scan.setTimestamp(previousTimestamp + getVarLong(buffer));
+        scan.setSequenceNumber(previousSequenceNumber + getVarLong(buffer));
+        decode(buffer, scan.getDistances(), previousDistances, numberOfPoints);
+        scan.updateValidMask();
+
+        scan.setRemission(hasRemission);
+        if (hasRemission) {
+            decode(buffer, scan.getRemissions(), previousRemissions, numberOfPoints);
+        }
+    }
+
+    /**
+     * @return A view of the payload of the block, positioned at its first scan.
+     */
+    private ByteBuffer blockBuffer(int block) {
+        ByteBuffer buffer = segments.get(blockSegments[block]).duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        buffer.position(blockPositions[block] + BLOCK_HEADER_LENGTH);
+        return buffer;
+    }
+
+    private int findBlock(long index) {
+        int low = 0;
+        int high = firstScans.length - 1;
+
+        while (low < high) {
+            int middle = (low + high + 1) >>> 1;
+            if (firstScans[middle] <= index) {
+                low = middle;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return low;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
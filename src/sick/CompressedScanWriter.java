@@ -0,0 +1,179 @@
+package sick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static sick.CompressedScanFormat.*;
+
+/**
+ * Writes scans to a compressed scan file, see {@link CompressedScanFormat}.
+ * Scans are encoded into a block buffer as they arrive and every full block is written to the file channel,
+ * so a capture interrupted at any time stays readable up to its last complete block.
+ * Like with {@link ScanFileWriter}, every scan must use the angle grid of the first scan
+ * and either all or none of the scans must carry remissions.
+ */
+public class CompressedScanWriter implements Closeable {
+
+    public static final int DEFAULT_SCANS_PER_BLOCK = 1024;
+
+    private final FileChannel channel;
+    private final int scansPerBlock;
+
+    private ByteBuffer block = null;
+    private int[] previousDistances;
+    private int[] previousRemissions;
+
+    private int startingAngle;
+    private int angularResolution;
+    private int numberOfPoints = -1;
+    private boolean hasRemission;
+
+    private int blockScans = 0;
+    private long previousTimestamp;
+    private long previousSequenceNumber;
+    private long numberOfScans = 0;
+
+    public CompressedScanWriter(Path path) throws IOException {
+        this(path, DEFAULT_SCANS_PER_BLOCK);
+    }
+
+    /**
+     * @param path          The path of the file.
+     * @param scansPerBlock The number of scans of a block. Larger blocks compress the first scan of the block
+     *                      less often, smaller blocks give more parallelism and less loss on a crash.
+     * @throws IOException If the file cannot be created.
+     */
+    public CompressedScanWriter(Path path, int scansPerBlock) throws IOException {
+        if (scansPerBlock < 1) {
+            throw new IllegalArgumentException("Scans per block must be positive: " + scansPerBlock);
+        }
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.scansPerBlock = scansPerBlock;
+    }
+
+    /**
+     * Appends a scan to the file.
+     *
+     * @param scan The scan to write.
+     * @throws IOException If writing fails or the scan does not match the angle grid of the file.
+     */
+    public void write(Scan scan) throws IOException {
+        if (numberOfPoints < 0) {
+            writeHeader(scan);
+        } else if (!ScanFileFormat.hasSameLayout(scan, startingAngle, angularResolution, numberOfPoints,
+                hasRemission)) {
+            throw new IOException("Scan does not match the angle grid or remission of the file");
+        }
+
+        if (blockScans == 0) {
+            startBlock(scan.getTimestamp());
+        }
+
+        putVarLong(block, scan.getTimestamp() - previousTimestamp);
+        previousTimestamp = scan.getTimestamp();
+        putVarLong(block, scan.getSequenceNumber() - previousSequenceNumber);
+        previousSequenceNumber = scan.getSequenceNumber();
+
+        encode(block, scan.getDistances(), previousDistances, numberOfPoints);
+        if (hasRemission) {
+            encode(block, scan.getRemissions(), previousRemissions, numberOfPoints);
+        }
+
+        numberOfScans++;
+        if (++blockScans == scansPerBlock) {
+            writeBlock();
+        }
+    }
+
+    public long getNumberOfScans() {
+        return numberOfScans;
+    }
+
+    /**
+     * @return The number of bytes written to the file so far, including the block being encoded.
+     */
+    public long size() throws IOException {
+        return channel.position() + (block != null ? block.position() : 0);
+    }
+
+    private void writeHeader(Scan scan) throws IOException {
+        startingAngle = scan.getStartingAngle();
+        angularResolution = scan.getAngularResolution();
+        numberOfPoints = scan.getNumberOfPoints();
+        hasRemission = scan.hasRemission();
+
+        previousDistances = new int[numberOfPoints];
+        previousRemissions = new int[hasRemission ? numberOfPoints : 0];
+        block = ByteBuffer.allocateDirect(BLOCK_HEADER_LENGTH
+                        + scansPerBlock * maxEncodedSize(numberOfPoints, hasRemission))
+                .order(ByteOrder.LITTLE_ENDIAN);
+
+        putHeader(block, scan, scansPerBlock);
+        flipAndWrite();
+    }
+
+    private void startBlock(long timestamp) {
+        Arrays.fill(previousDistances, 0);
+        Arrays.fill(previousRemissions, 0);
+        previousTimestamp = timestamp;
+        previousSequenceNumber = -1;
+
+        block.clear();
+        block.putLong(FIRST_TIMESTAMP_OFFSET, timestamp);
+        block.position(BLOCK_HEADER_LENGTH);
+    }
+
+    /**
+     * Writes the scans encoded so far as a block, leaving an empty block.
+     */
+    private void writeBlock() throws IOException {
+        if (blockScans == 0) {
+            return;
+        }
+
+        block.putInt(PAYLOAD_LENGTH_OFFSET, block.position() - BLOCK_HEADER_LENGTH);
+        block.putInt(BLOCK_SCANS_OFFSET, blockScans);
+        flipAndWrite();
+        blockScans = 0;
+    }
+
+    private void flipAndWrite() throws IOException {
+        block.flip();
+        while (block.hasRemaining()) {
+            channel.write(block);
+        }
+        block.clear();
+    }
+
+    /**
+     * Writes the last, possibly partial block, stores the number of scans in the header and closes the file.
+     * Without any scan, the file holds only a header with an empty grid.
+     *
+     * @throws IOException If writing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (numberOfPoints < 0) {
+                writeHeader(new Scan()); // An empty capture is still a valid file
+            }
+
+            writeBlock();
+
+            if (numberOfScans > 0) {
+                ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+                count.putLong(0, numberOfScans);
+                channel.write(count, NUMBER_OF_SCANS_OFFSET);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package sick;
+
+/**
+ * Places consecutive scans along the conveyor, either a fixed distance apart or by their receive timestamps
+ * and a constant conveyor speed. The first scan after creation or {@link #reset()} is placed at 0.
+ */
+final class ConveyorAxis {
+
+    private final double scale;
+    private final boolean isTimeBased;
+
+    private boolean hasOrigin = false;
+    private double position = 0;
+    private long previousTimestamp = 0;
+    private long previousSequenceNumber = -1;
+
+    private ConveyorAxis(double scale, boolean isTimeBased) {
+        this.scale = scale;
+        this.isTimeBased = isTimeBased;
+    }
+
+    /**
+     * Scans lost in between leave a gap if the telegrams carry a scan counter.
+     *
+     * @param millimetersPerScan The distance the conveyor moves between two scans in mm.
+     */
+    static ConveyorAxis ofScanSpacing(double millimetersPerScan) {
+        return new ConveyorAxis(millimetersPerScan, false);
+    }
+
+    /**
+     * @param millimetersPerSecond The speed of the conveyor in mm/s.
+     */
+    static ConveyorAxis ofConveyorSpeed(double millimetersPerSecond) {
+        return new ConveyorAxis(millimetersPerSecond / 1e9, true);
+    }
+
+    /**
+     * Places the next scan. Must be called once for every scan, in order.
+     * The position advances scan by scan, so it keeps increasing when the device restarts its scan counter,
+     * after a stop and start or a reconnect.
+     *
+     * @param scan The decoded scan.
+     * @return The position of the scan along the conveyor in mm.
+     */
+    double next(Scan scan) {
+        long timestamp = scan.getTimestamp();
+        long sequenceNumber = scan.getSequenceNumber();
+
+        if (!hasOrigin) {
+            hasOrigin = true;
+            position = 0;
+        } else if (isTimeBased) {
+            position += Math.max(0, timestamp - previousTimestamp) * scale;
+        } else {
+            // Scans lost in between count; without a counter, or when it restarts, the scan is the next one
+            long steps = previousSequenceNumber >= 0 && sequenceNumber > previousSequenceNumber
+                    ? sequenceNumber - previousSequenceNumber
+                    : 1;
+            position += steps * scale;
+        }
+
+        previousTimestamp = timestamp;
+        previousSequenceNumber = sequenceNumber;
+        return position;
+    }
+
+    void reset() {
+        hasOrigin = false;
+    }
+}
@@ -0,0 +1,16 @@
+package sick;
+
+/**
+ * Receives the scans of several devices driven by a {@link ScannerGroup}.
+ */
+public interface DeviceScanListener {
+
+    /**
+     * Called on the event loop thread for every decoded scan, in the order the telegrams were received.
+     * The scan record is reused for the next telegram of the device, so it must be copied if it is kept.
+     *
+     * @param device The device the scan comes from.
+     * @param scan   The decoded scan.
+     */
+    void onScan(ScannerGroup.Device device, Scan scan);
+}
@@ -0,0 +1,109 @@
+package sick;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A single telegram received from the device.
+ * Holds the payload between the length field and the checksum in a reusable byte array.
+ */
+public class Frame {
+
+    private static final int DEFAULT_CAPACITY = 2048;
+
+    private byte[] data;
+    private int length = 0;
+    private long timestamp = 0;
+
+    public Frame() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Frame(int capacity) {
+        this.data = new byte[capacity];
+    }
+
+    public byte[] getData() {
+        return data;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    /**
+     * @return The value of {@link System#nanoTime()} when the telegram was received.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    public void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Sets the payload length, growing the backing array if needed.
+     * The content of the array is preserved only up to the previous length.
+     *
+     * @param length The new payload length.
+     */
+    public void setLength(int length) {
+        if (length > data.length) {
+            data = Arrays.copyOf(data, Math.max(length, data.length * 2));
+        }
+        this.length = length;
+    }
+
+    /**
+     * Checks whether the payload starts with the given ASCII text.
+     *
+     * @param text The text to compare with.
+     * @return {@code true} if the payload begins with the text.
+     */
+    public boolean startsWith(String text) {
+        if (text.length() > length) {
+            return false;
+        }
+
+        for (int i = 0; i < text.length(); i++) {
+            if (data[i] != (byte) text.charAt(i)) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Checks whether the payload is exactly the given ASCII text.
+     *
+     * @param text The text to compare with.
+     * @return {@code true} if the payload equals the text.
+     */
+    public boolean contentEquals(String text) {
+        return text.length() == length && startsWith(text);
+    }
+
+    /**
+     * Copies the payload and timestamp of another frame into this one.
+     *
+     * @param other The frame to copy from.
+     */
+    public void copyFrom(Frame other) {
+        setLength(other.length);
+        System.arraycopy(other.data, 0, data, 0, other.length);
+        timestamp = other.timestamp;
+    }
+
+    public Frame copy() {
+        Frame frame = new Frame(length);
+        frame.copyFrom(this);
+        return frame;
+    }
+
+    @Override
+    public String toString() {
+        return new String(data, 0, length, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,137 @@
+package sick;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A lock-free ring of preallocated frames passed from a single producer to a single consumer.
+ * The producer claims a free slot, fills it and publishes it; the consumer peeks at the oldest
+ * published slot, processes it and releases it. Neither side allocates or blocks.
+ * Frames that arrive while the ring is full are counted as dropped.
+ */
+public class FrameRing {
+
+    private final Frame[] frames;
+    private final int mask;
+
+    private final AtomicLong head = new AtomicLong(); // Next slot to consume, written by the consumer
+    private final AtomicLong tail = new AtomicLong(); // Next slot to fill, written by the producer
+    private final AtomicLong dropped = new AtomicLong(); // Written by the producer
+
+    private long cachedHead = 0; // Producer's view of head
+    private long cachedTail = 0; // Consumer's view of tail
+
+    /**
+     * @param capacity      The number of slots, rounded up to a power of two.
+     * @param frameCapacity The initial capacity of every frame in bytes.
+     */
+    public FrameRing(int capacity, int frameCapacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+
+        this.frames = new Frame[size];
+        this.mask = size - 1;
+
+        for (int i = 0; i < size; i++) {
+            frames[i] = new Frame(frameCapacity);
+        }
+    }
+
+    /**
+     * Claims the next free slot. Called by the producer only.
+     *
+     * @return The frame to fill, or {@code null} if the ring is full.
+     */
+    public Frame claim() {
+        long t = tail.get();
+
+        if (t - cachedHead >= frames.length) {
+            cachedHead = head.get();
+
+            if (t - cachedHead >= frames.length) {
+                return null;
+            }
+        }
+
+        return frames[(int) t & mask];
+    }
+
+    /**
+     * Makes the claimed frame visible to the consumer. Called by the producer only.
+     */
+    public void publish() {
+        tail.lazySet(tail.get() + 1);
+    }
+
+    /**
+     * Counts a frame that could not be stored because the ring was full. Called by the producer only.
+     */
+    public void drop() {
+        dropped.lazySet(dropped.get() + 1);
+    }
+
+    /**
+     * Returns the oldest published frame without removing it. Called by the consumer only.
+     *
+     * @return The frame, or {@code null} if the ring is empty.
+     */
+    public Frame peek() {
+        long h = head.get();
+
+        if (h >= cachedTail) {
+            cachedTail = tail.get();
+
+            if (h >= cachedTail) {
+                return null;
+            }
+        }
+
+        return frames[(int) h & mask];
+    }
+
+    /**
+     * Returns the frame obtained from {@link #peek()} to the producer. Called by the consumer only.
+     */
+    public void release() {
+        head.lazySet(head.get() + 1);
+    }
+
+    /**
+     * @return The number of frames published so far, the position the next published frame will have.
+     */
+    public long getPublished() {
+        return tail.get();
+    }
+
+    /**
+     * @return The position of the frame returned by {@link #peek()}, counting published frames from 0.
+     */
+    public long getPosition() {
+        return head.get();
+    }
+
+    /**
+     * Discards every published frame. Only called while neither the producer nor the consumer is running.
+     */
+    public void clear() {
+        head.set(tail.get());
+        cachedHead = head.get();
+        cachedTail = tail.get();
+    }
+
+    public int capacity() {
+        return frames.length;
+    }
+
+    /**
+     * @return The number of published frames waiting for the consumer.
+     */
+    public int size() {
+        return (int) (tail.get() - head.get());
+    }
+
+    /**
+     * @return The number of frames dropped because the ring was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
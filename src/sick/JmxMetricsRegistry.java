@@ -0,0 +1,50 @@
+package sick;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Exposes the metrics of every registered device as an MBean named {@code sick:type=LMS400,name=<name>},
+ * readable with JConsole, VisualVM or any JMX client.
+ */
+public class JmxMetricsRegistry implements MetricsRegistry {
+
+    private final MBeanServer server;
+
+    public JmxMetricsRegistry() {
+        this(ManagementFactory.getPlatformMBeanServer());
+    }
+
+    public JmxMetricsRegistry(MBeanServer server) {
+        this.server = server;
+    }
+
+    @Override
+    public boolean register(String name, AcquisitionMetrics metrics) {
+        try {
+            server.registerMBean(metrics, objectName(name));
+            return true;
+        } catch (JMException e) {
+            e.printStackTrace(); // Handle or log the exception
+            return false;
+        }
+    }
+
+    @Override
+    public boolean unregister(String name) {
+        try {
+            server.unregisterMBean(objectName(name));
+            return true;
+        } catch (JMException e) {
+            e.printStackTrace(); // Handle or log the exception
+            return false;
+        }
+    }
+
+    static ObjectName objectName(String name) throws MalformedObjectNameException {
+        return new ObjectName("sick:type=LMS400,name=" + ObjectName.quote(name));
+    }
+}
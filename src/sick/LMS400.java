@@ -1,26 +1,95 @@
 package sick;
 
 import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
 import java.net.Socket;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-
-public class LMS400 extends Thread {
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Controller of the Sick LMS400 laser scanner.
+ * While connected, an acquisition thread drains the socket into a {@link FrameRing}
+ * and a decoder thread turns the measurement telegrams from the ring into {@link Scan} records,
+ * so that decoding runs while acquisition continues.
+ * If the connection is lost, the acquisition thread reconnects with exponential backoff and resumes scanning.
+ * Decoded scans are pushed to registered {@link ScanListener}s as they arrive,
+ * or collected into scanData by a measurement that ends after a number of scans, after a duration,
+ * or when {@link #stopMeasurement()} is called.
+ * Collected scans are kept off-heap in a bounded {@link ScanStore}, configured with {@link #setStorage}.
+ */
+public class LMS400 {
 
     private final String hostname;
     private final int port;
 
-    private Socket socket = null;
-    private PrintWriter out = null;
-    private BufferedReader in = null;
-
-    private boolean isConnected = false;
-    private boolean isWorking = false;
-    private boolean isReset = false;
-
-    private final ArrayList<String> stringData = new ArrayList<>();
-    private final ArrayList<ArrayList<Point>> scanData = new ArrayList<>();
-
-    private static final char STX = 0x02;
+    private volatile SocketChannel channel = null;
+    private volatile Socket socket = null;
+    private final TelegramReader reader = new TelegramReader(null);
+    private volatile TelegramWriter writer = null;
+    private final Object connectionLock = new Object();
+    private volatile String scanningCommand = null;
+
+    private volatile boolean isConnected = false;
+    private volatile boolean isRunning = false;
+    private volatile boolean isWorking = false;
+    private volatile boolean isReset = false;
+
+    private Thread acquisitionThread = null;
+    private Thread decoderThread = null;
+
+    private final FrameRing ring = new FrameRing(RING_CAPACITY, FRAME_CAPACITY);
+    private final Frame overflowFrame = new Frame(FRAME_CAPACITY);
+    private final SopasDispatcher dispatcher = new SopasDispatcher();
+    private final AtomicLong scansToCollect = new AtomicLong();
+    private volatile boolean hasCollectDeadline = false;
+    private volatile long collectDeadline = 0;
+    private volatile boolean isStopRequested = false;
+    private final SequenceTracker sequence = new SequenceTracker(); // Used by the decoder thread
+    private volatile boolean isSequenceReset = false;
+    private volatile long staleFrames = 0; // Frames before this ring position belong to a lost connection
+    private final AcquisitionMetrics metrics = new AcquisitionMetrics(this);
+    private MetricsRegistry metricsRegistry = null;
+    private String metricsName = null;
+
+    private final CopyOnWriteArrayList<ScanListener> listeners = new CopyOnWriteArrayList<>();
+    private final Scan currentScan = new Scan();
+    private final Object decoderLock = new Object();
+    private ScanPublisher publisher = null;
+    private ScanRecorder recorder = null;
+    private volatile TelegramRecorder telegramRecorder = null;
+    private final Object telegramRecorderLock = new Object();
+
+    private final ArrayList<Frame> telegramData = new ArrayList<>();
+    private volatile ScanStore scanData = new ScanStore(ScanStore.DEFAULT_CAPACITY, ScanStore.DEFAULT_MAX_POINTS);
+
+    private volatile ScanDecoder decoder = new ScanDecoder();
+    private volatile ScanFilterChain filterChain = null;
+
+    private static final int RECEIVE_BUFFER_SIZE = 1 << 20;
+    private static final int SEND_BUFFER_SIZE = 8 * 1024;
+
+    private static final int RING_CAPACITY = 1024;
+    private static final int FRAME_CAPACITY = 2048;
+    private static final long REPLY_TIMEOUT_MS = 5000;
+    private static final long IDLE_PARK_NS = 100_000;
+    private static final long REPLAY_PARK_NS = 100_000_000; // Longest wait of a real-time replay before checking reset
+    private static final int LOG_BATCH_SIZE = 1024;
+    private static final int MAX_TELEGRAM_DATA = 1024;
+    private static final int CONNECT_TIMEOUT_MS = 2000;
+    private static final long MIN_RECONNECT_DELAY_MS = 10;
+    private static final long MAX_RECONNECT_DELAY_MS = 2000;
 
     public LMS400() {
         this.hostname = "192.168.0.1";
@@ -32,8 +101,20 @@ public class LMS400 extends Thread {
         this.port = port;
     }
 
+    /**
+     * Sets the reset flag. A measurement in progress returns as soon as the flag is set.
+     *
+     * @param isReset The new value of the flag.
+     */
     public void setReset(boolean isReset) {
         this.isReset = isReset;
+
+        if (isReset) {
+            ScanStore store = scanData;
+            synchronized (store) {
+                store.notifyAll(); // Wake up a waiting measurement
+            }
+        }
     }
 
     public boolean isConnected() {
@@ -49,11 +130,350 @@ public class LMS400 extends Thread {
     }
 
     public ArrayList<Point> getScanData(int index) {
+        return getScan(index).toPoints();
+    }
+
+    /**
+     * Reads a stored scan into a new record.
+     *
+     * @param index The index of the scan, 0 for the oldest stored scan.
+     * @return The scan.
+     */
+    public Scan getScan(int index) {
         return scanData.get(index);
     }
 
-    public void clearStringData() {
-        stringData.clear();
+    /**
+     * Reads a stored scan into the given record, so that iterating over many scans does not allocate.
+     *
+     * @param index The index of the scan, 0 for the oldest stored scan.
+     * @param scan  The scan record to fill.
+     * @return The filled scan record.
+     */
+    public Scan getScan(int index, Scan scan) {
+        return scanData.get(index, scan);
+    }
+
+    public int getNumberOfScans() {
+        return scanData.size();
+    }
+
+    /**
+     * @return The number of scans collected since the storage was set, including scans dropped since.
+     */
+    public long getNumberOfCollectedScans() {
+        return scanData.getAdded();
+    }
+
+    /**
+     * @return The number of collected scans that were overwritten or could not be stored.
+     */
+    public long getDroppedScans() {
+        return scanData.getDropped();
+    }
+
+    /**
+     * Replaces the storage of collected scans. The scans stored so far are discarded.
+     *
+     * @param capacity  The maximum number of bytes of off-heap memory.
+     * @param maxPoints The maximum number of points of a scan.
+     * @param policy    The behaviour when the capacity is reached; spill files are created in the temporary directory.
+     * @return {@code true} if the storage was replaced, {@code false} if connected or replaying.
+     */
+    public boolean setStorage(long capacity, int maxPoints, ScanStore.Policy policy) {
+        if (isConnected || isRunning) {
+            return false;
+        }
+
+        Path spillDirectory = Paths.get(System.getProperty("java.io.tmpdir"));
+        ScanStore previous = scanData;
+        scanData = new ScanStore(capacity, maxPoints, policy, spillDirectory);
+
+        try {
+            previous.close();
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception
+        }
+
+        return true;
+    }
+
+    public ScanStore getStorage() {
+        return scanData;
+    }
+
+    /**
+     * Sets the measuring range. Distances outside the range are decoded as 0 and marked invalid.
+     *
+     * @param minDistance The shortest valid distance in mm.
+     * @param maxDistance The longest valid distance in mm.
+     */
+    public void setDistanceRange(int minDistance, int maxDistance) {
+        decoder = new ScanDecoder(minDistance, maxDistance, decoder.isRemissionEnabled());
+    }
+
+    /**
+     * Sets the filters applied on the decoder thread to every decoded scan, before it reaches the listeners
+     * and the storage. Filters with state, such as a {@link TemporalFilter}, are reset whenever the device
+     * starts a new series of scans. The filters must not be shared with another device.
+     *
+     * @param filters The filters in the order they are applied, none to disable filtering.
+     */
+    public void setFilters(ScanFilter... filters) {
+        filterChain = filters.length > 0 ? new ScanFilterChain(filters) : null;
+    }
+
+    /**
+     * Selects whether remission is requested from the device and decoded with every scan.
+     * Takes effect with the next {@link #startScanning()}; with remission disabled the device sends distances only.
+     *
+     * @param isRemissionEnabled {@code true} to request and decode remission.
+     */
+    public void setRemissionEnabled(boolean isRemissionEnabled) {
+        decoder = new ScanDecoder(decoder.getMinDistance(), decoder.getMaxDistance(), isRemissionEnabled);
+    }
+
+    public boolean isRemissionEnabled() {
+        return decoder.isRemissionEnabled();
+    }
+
+    /**
+     * Registers a listener receiving every scan decoded while the device is scanning.
+     *
+     * @param listener The listener to add.
+     */
+    public void addScanListener(ScanListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeScanListener(ScanListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Returns a publisher of every scan decoded while the device is scanning.
+     * Subscribers control the rate of delivery through {@link Flow.Subscription#request(long)}.
+     * The publisher is completed on disconnect.
+     *
+     * @return The publisher of decoded scans.
+     */
+    public synchronized Flow.Publisher<Scan> getPublisher() {
+        if (publisher == null) {
+            publisher = new ScanPublisher();
+            listeners.add(publisher);
+        }
+        return publisher;
+    }
+
+    /**
+     * Starts streaming every decoded scan to binary scan files in the project directory.
+     *
+     * @param prefix        The prefix of the file names.
+     * @param maxFileSize   The size in bytes after which a new file is started, 0 for no limit.
+     * @param maxFileMillis The age in ms after which a new file is started, 0 for no limit.
+     * @return {@code true} if recording started, {@code false} if already recording.
+     */
+    public synchronized boolean startRecording(String prefix, long maxFileSize, long maxFileMillis) {
+        if (recorder != null) {
+            return false; // Already recording
+        }
+
+        Path directory = Paths.get(System.getProperty("user.dir"));
+        recorder = new ScanRecorder(directory, prefix, maxFileSize, maxFileMillis, ScanRecorder.DEFAULT_BUFFER_SIZE);
+        listeners.add(recorder);
+        return true;
+    }
+
+    /**
+     * Stops recording, writes the remaining scans and closes the current file.
+     *
+     * @return {@code true} if all scans were written, {@code false} if not recording or writing failed.
+     */
+    public synchronized boolean stopRecording() {
+        if (recorder == null) {
+            return false; // Not recording
+        }
+
+        listeners.remove(recorder);
+
+        // Let the decoder thread finish a scan that may still be passed to the recorder
+        synchronized (decoderLock) {
+            try {
+                recorder.close();
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace(); // Handle or log the exception
+                return false;
+            } finally {
+                recorder = null;
+            }
+        }
+    }
+
+    public boolean isRecording() {
+        return recorder != null;
+    }
+
+    /**
+     * Starts appending every received telegram, exactly as framed, to a telegram log in the project directory.
+     * The log can be fed through the decoding pipeline again with {@link #replay(Path, boolean)}.
+     *
+     * @param filename The name of the log, without extension.
+     * @return {@code true} if recording started, {@code false} if already recording or the log cannot be opened.
+     */
+    public boolean startTelegramRecording(String filename) {
+        Path path = Paths.get(System.getProperty("user.dir"), filename + ".lmst");
+
+        synchronized (telegramRecorderLock) {
+            if (telegramRecorder != null) {
+                return false; // Already recording
+            }
+
+            try {
+                telegramRecorder = new TelegramRecorder(path, TelegramRecorder.DEFAULT_BUFFER_SIZE);
+                return true;
+            } catch (IOException e) {
+                e.printStackTrace(); // Handle or log the exception
+                return false;
+            }
+        }
+    }
+
+    /**
+     * Stops recording telegrams, writes the remaining telegrams and closes the log.
+     *
+     * @return {@code true} if all telegrams were written, {@code false} if not recording or writing failed.
+     */
+    public boolean stopTelegramRecording() {
+        TelegramRecorder stopped;
+
+        synchronized (telegramRecorderLock) {
+            stopped = telegramRecorder;
+            telegramRecorder = null;
+        }
+
+        if (stopped == null) {
+            return false; // Not recording
+        }
+
+        try {
+            stopped.close();
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception
+            return false;
+        }
+    }
+
+    public boolean isRecordingTelegrams() {
+        return telegramRecorder != null;
+    }
+
+    /**
+     * @return The number of telegrams received since connecting.
+     */
+    public long getReceivedFrames() {
+        return metrics.getReceivedFrames();
+    }
+
+    /**
+     * @return The number of payload bytes received since connecting.
+     */
+    public long getReceivedBytes() {
+        return metrics.getReceivedBytes();
+    }
+
+    public AcquisitionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Registers the metrics of this device. Timing of every decoded scan stays off until enabled through
+     * {@link AcquisitionMetrics#setTimingEnabled(boolean)}, for example as the TimingEnabled attribute in JMX,
+     * so registered metrics cost nothing while nobody looks at them.
+     *
+     * @param registry The registry to report to, for example a {@link JmxMetricsRegistry}.
+     * @param name     The name of this device in the registry.
+     * @return {@code true} if registered, {@code false} if already registered or registering failed.
+     */
+    public synchronized boolean registerMetrics(MetricsRegistry registry, String name) {
+        if (metricsRegistry != null || !registry.register(name, metrics)) {
+            return false;
+        }
+
+        metricsRegistry = registry;
+        metricsName = name;
+        return true;
+    }
+
+    /**
+     * Unregisters the metrics and disables timing.
+     *
+     * @return {@code true} if unregistered, {@code false} if not registered or unregistering failed.
+     */
+    public synchronized boolean unregisterMetrics() {
+        if (metricsRegistry == null) {
+            return false;
+        }
+
+        metrics.setTimingEnabled(false);
+        boolean isUnregistered = metricsRegistry.unregister(metricsName);
+        metricsRegistry = null;
+        metricsName = null;
+        return isUnregistered;
+    }
+
+    /**
+     * @return The number of telegrams rejected because the checksum did not match.
+     */
+    public long getChecksumErrors() {
+        return reader.getChecksumErrors();
+    }
+
+    /**
+     * @return The number of times the telegram stream lost synchronization.
+     */
+    public long getFramingErrors() {
+        return reader.getFramingErrors();
+    }
+
+    /**
+     * @return The number of bytes skipped while resynchronizing to the telegram stream.
+     */
+    public long getDiscardedBytes() {
+        return reader.getDiscardedBytes();
+    }
+
+    /**
+     * @return The number of measurement telegrams waiting for the decoder thread.
+     */
+    public int getQueueDepth() {
+        return ring.size();
+    }
+
+    Thread getDecoderThread() {
+        return decoderThread;
+    }
+
+    /**
+     * @return The number of measurement telegrams missing from the sequence of scan counters,
+     *         lost on the network or dropped because the decoder did not keep up.
+     */
+    public long getLostScans() {
+        return sequence.getLostScans();
+    }
+
+    /**
+     * @return The number of measurement telegrams dropped because the decoder did not keep up.
+     */
+    public long getDroppedFrames() {
+        return ring.getDropped();
+    }
+
+    public void clearTelegramData() {
+        synchronized (telegramData) {
+            telegramData.clear();
+        }
     }
 
     public void clearScanData() {
@@ -69,19 +489,16 @@ public class LMS400 extends Thread {
     }
 
     public boolean connect() {
-        if (isConnected) {
-            return false; // Already connected
+        if (isConnected || isRunning) {
+            return false; // Already connected, or replaying a telegram log
         }
 
-        try (Socket socket = new Socket(hostname, port);
-             PrintWriter out = new PrintWriter(socket.getOutputStream(), true);
-             BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream()))) {
-
-            this.socket = socket;
-            this.out = out;
-            this.in = in;
+        try {
+            open();
             this.isConnected = true;
 
+            startThreads();
+
             return true;
         } catch (IOException e) {
             e.printStackTrace(); // Handle or log the exception
@@ -89,37 +506,397 @@ public class LMS400 extends Thread {
         }
     }
 
+    /**
+     * Opens the connection to the device and points the reader and writer at it.
+     */
+    private void open() throws IOException {
+        SocketChannel channel = SocketChannel.open();
+
+        try {
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_SIZE);
+            channel.setOption(StandardSocketOptions.SO_SNDBUF, SEND_BUFFER_SIZE);
+            channel.socket().connect(new InetSocketAddress(hostname, port), CONNECT_TIMEOUT_MS);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        synchronized (connectionLock) {
+            this.channel = channel;
+            this.socket = channel.socket();
+            this.reader.setChannel(channel);
+            this.writer = new TelegramWriter(channel);
+        }
+    }
+
+    /**
+     * Reconnects after the connection was lost, waiting twice as long after every failed attempt.
+     * Pending commands fail; scanning is requested again if it was active.
+     * Called by the acquisition thread only.
+     *
+     * @return {@code true} if reconnected, {@code false} if disconnected meanwhile.
+     */
+    private boolean reconnect() {
+        dispatcher.failAll(new IOException("Connection lost"));
+        long delay = MIN_RECONNECT_DELAY_MS;
+
+        while (isRunning) {
+            try {
+                synchronized (connectionLock) {
+                    if (!isRunning) {
+                        return false;
+                    }
+                    channel.close();
+                }
+
+                open();
+
+                synchronized (connectionLock) {
+                    if (!isRunning) {
+                        channel.close(); // Disconnected while connecting
+                        return false;
+                    }
+                }
+
+                metrics.reconnected();
+                staleFrames = ring.getPublished(); // Written before the reset, see decode()
+                isSequenceReset = true;
+
+                String cmd = scanningCommand;
+                if (isWorking && cmd != null) {
+                    commandAsync(cmd); // Answered through this thread, so do not wait here
+                }
+
+                return true;
+            } catch (IOException e) {
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException interrupted) {
+                    return false; // Interrupted by disconnect
+                }
+                delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+            }
+        }
+
+        return false;
+    }
+
     public boolean disconnect() {
         if (!isConnected) {
             return false; // Already disconnected
         }
 
+        isRunning = false;
+
         try {
-            if (in != null) {
-                in.close();
+            synchronized (connectionLock) {
+                if (channel != null) {
+                    channel.close(); // Unblocks the acquisition thread
+                }
             }
 
-            if (out != null) {
-                out.close();
+            if (acquisitionThread != null) {
+                acquisitionThread.interrupt(); // Unblocks an acquisition thread waiting to reconnect
             }
 
-            if (socket != null) {
-                socket.close();
+            if (decoderThread != null) {
+                decoderThread.interrupt(); // Unblocks a decoder waiting for storage
             }
+
+            joinThreads();
+            ring.clear(); // Frames of this connection must not be decoded after the next connect
         } catch (IOException e) {
             e.printStackTrace(); // Handle or log the exception
             return false;
         } finally {
-            // Set in, out, and socket as null and isConnected as false
-            in = null;
-            out = null;
+            // Set channel, socket and writer as null and isConnected as false
+            channel = null;
             socket = null;
+            writer = null;
             isConnected = false;
+            dispatcher.failAll(new IOException("Disconnected"));
+            closePublisher();
         }
 
         return true;
     }
 
+    private synchronized void closePublisher() {
+        if (publisher != null) {
+            listeners.remove(publisher);
+            publisher.close();
+            publisher = null;
+        }
+    }
+
+    private void startThreads() {
+        isRunning = true;
+
+        acquisitionThread = new Thread(this::acquire, "LMS400-acquisition");
+        decoderThread = new Thread(this::decode, "LMS400-decoder");
+
+        acquisitionThread.setDaemon(true);
+        decoderThread.setDaemon(true);
+
+        acquisitionThread.start();
+        decoderThread.start();
+    }
+
+    private void joinThreads() {
+        try {
+            if (acquisitionThread != null) {
+                acquisitionThread.join();
+            }
+
+            if (decoderThread != null) {
+                decoderThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            acquisitionThread = null;
+            decoderThread = null;
+        }
+    }
+
+    /**
+     * Acquisition loop. Reads every telegram from the socket,
+     * publishes measurement telegrams to the ring and routes answers to their pending commands.
+     * Reconnects when the device closes the connection or reading fails.
+     */
+    private void acquire() {
+        while (isRunning) {
+            Frame slot = ring.claim();
+            Frame frame = slot != null ? slot : overflowFrame;
+
+            try {
+                if (!reader.read(frame)) {
+                    throw new EOFException("Connection closed by the device");
+                }
+            } catch (IOException e) {
+                if (!isRunning || !reconnect()) {
+                    break; // Disconnected
+                }
+                continue;
+            }
+
+            metrics.frameReceived(frame.getLength());
+
+            if (telegramRecorder != null) {
+                recordTelegram(frame);
+            }
+
+            if (!ScanDecoder.isMeasurement(frame)) {
+                if (!dispatcher.dispatch(frame)) {
+                    metrics.unexpectedTelegram();
+
+                    synchronized (telegramData) {
+                        if (telegramData.size() == MAX_TELEGRAM_DATA) {
+                            telegramData.remove(0);
+                        }
+                        telegramData.add(frame.copy()); // Unexpected answer
+                    }
+                }
+            } else if (slot != null) {
+                ring.publish();
+            } else {
+                ring.drop();
+            }
+        }
+
+        dispatcher.failAll(new IOException("Connection closed"));
+    }
+
+    private void recordTelegram(Frame frame) {
+        synchronized (telegramRecorderLock) {
+            if (telegramRecorder != null) {
+                telegramRecorder.record(frame); // Never waits for the disk
+            }
+        }
+    }
+
+    /**
+     * Feeds a telegram log through the decoding pipeline in place of the device,
+     * so that recorded data can be reprocessed, for example with new listeners, and field issues reproduced.
+     * Every scan is passed to the listeners and collected into scanData with its original receive timestamp.
+     * Unlike live acquisition, no telegram is dropped: replay waits whenever the decoder falls behind.
+     * Blocks until the log is replayed and decoded, or reset is set.
+     *
+     * @param path       The path of the telegram log.
+     * @param isRealTime {@code true} to replay at the rate the telegrams were received,
+     *                   {@code false} to replay as fast as the decoder and listeners allow.
+     * @return The number of measurement telegrams replayed, or -1 if connected or reading the log failed.
+     */
+    public long replay(Path path, boolean isRealTime) {
+        if (isConnected || isRunning) {
+            return -1;
+        }
+
+        try (TelegramLogReader log = new TelegramLogReader(path)) {
+            isRunning = true;
+            isSequenceReset = true;
+            hasCollectDeadline = false;
+            scansToCollect.set(Long.MAX_VALUE);
+
+            decoderThread = new Thread(this::decode, "LMS400-decoder");
+            decoderThread.setDaemon(true);
+            decoderThread.start();
+
+            long replayed = 0;
+            int segment = -1;
+            long firstTimestamp = 0;
+            long startTime = 0;
+
+            while (!isReset) {
+                Frame slot = ring.claim();
+
+                if (slot == null) {
+                    LockSupport.parkNanos(IDLE_PARK_NS); // Wait for the decoder instead of dropping
+                    continue;
+                }
+
+                if (!log.read(slot)) {
+                    break; // End of log
+                }
+
+                metrics.frameReceived(slot.getLength());
+
+                if (!ScanDecoder.isMeasurement(slot)) {
+                    continue; // Answers to commands of the recorded session
+                }
+
+                if (isRealTime) {
+                    if (log.getSegment() != segment) {
+                        // Every recording session has its own time base, pace it from its first telegram
+                        segment = log.getSegment();
+                        firstTimestamp = slot.getTimestamp();
+                        startTime = System.nanoTime();
+                    }
+
+                    long delay = (slot.getTimestamp() - firstTimestamp) - (System.nanoTime() - startTime);
+                    while (delay > 0 && !isReset) {
+                        LockSupport.parkNanos(Math.min(delay, REPLAY_PARK_NS));
+                        delay = (slot.getTimestamp() - firstTimestamp) - (System.nanoTime() - startTime);
+                    }
+
+                    if (isReset) {
+                        break;
+                    }
+                }
+
+                ring.publish();
+                replayed++;
+            }
+
+            while (ring.size() > 0 && !isReset) {
+                LockSupport.parkNanos(IDLE_PARK_NS); // Let the decoder finish
+            }
+
+            return replayed;
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception
+            return -1;
+        } finally {
+            isRunning = false;
+            joinThreads();
+            ring.clear();
+            scansToCollect.set(0);
+            isReset = false;
+        }
+    }
+
+    /**
+     * Decoder loop. Consumes measurement telegrams from the ring, passes every scan to the listeners
+     * and stores the scans of the current measurement.
+     * The scan counter of every telegram is tracked, also of telegrams that are not decoded, to detect lost scans.
+     */
+    private void decode() {
+        while (isRunning) {
+            Frame frame = ring.peek();
+
+            if (frame == null) {
+                LockSupport.parkNanos(IDLE_PARK_NS);
+                continue;
+            }
+
+            ScanFilterChain filters = filterChain;
+
+            // Read the reset before the stale position, which is written first
+            boolean isNewSequence = isSequenceReset;
+
+            if (ring.getPosition() < staleFrames) {
+                ring.release(); // Received before the connection was lost, the sequence no longer fits
+                continue;
+            }
+
+            if (isNewSequence) {
+                isSequenceReset = false;
+                sequence.reset();
+
+                if (filters != null) {
+                    filters.reset();
+                }
+            }
+
+            long sequenceNumber = sequence.next(ScanDecoder.scanCounter(frame));
+
+            boolean isCollecting = scansToCollect.get() > 0
+                    && (!hasCollectDeadline || frame.getTimestamp() - collectDeadline < 0);
+
+            boolean isTiming = metrics.isTimingEnabled();
+            long allocatedBytes = 0;
+            long decodeStart = 0;
+
+            if (isTiming) {
+                metrics.recordQueueDepth(ring.size());
+                allocatedBytes = AcquisitionMetrics.currentThreadAllocatedBytes();
+                decodeStart = System.nanoTime();
+            }
+
+            if ((isCollecting || !listeners.isEmpty()) && decoder.decode(frame, currentScan)) {
+                if (filters != null) {
+                    filters.apply(currentScan);
+                }
+
+                if (isTiming) {
+                    metrics.recordDecode(System.nanoTime() - decodeStart,
+                            AcquisitionMetrics.currentThreadAllocatedBytes() - allocatedBytes);
+                }
+
+                metrics.scanDecoded();
+                currentScan.setSequenceNumber(sequenceNumber);
+
+                synchronized (decoderLock) {
+                    for (ScanListener listener : listeners) {
+                        try {
+                            listener.onScan(currentScan);
+                        } catch (RuntimeException e) {
+                            e.printStackTrace(); // Handle or log the exception
+                        }
+                    }
+                }
+
+                if (isCollecting) {
+                    ScanStore store = scanData;
+
+                    // Under the monitor the measurement rolls back on, so an aborted measurement leaves no scan behind
+                    synchronized (store) {
+                        if (scansToCollect.getAndDecrement() > 0) {
+                            store.add(currentScan); // Copied off-heap, wakes up the waiting measurement
+                        }
+                    }
+                }
+
+                if (isTiming) {
+                    metrics.recordLatency(System.nanoTime() - frame.getTimestamp());
+                }
+            }
+
+            ring.release();
+        }
+    }
+
     /**
      * Performs the specified number of scans.
      * Uses the startScanning, measure, and stopScanning functions.
@@ -129,6 +906,32 @@ public class LMS400 extends Thread {
      *         {@code false} if not connected or if reset was used.
      */
     public boolean scan(int N) {
+        return scan(() -> measure(N));
+    }
+
+    /**
+     * Scans for the specified duration, however many scans the configured scanning frequency yields.
+     *
+     * @param duration The duration of the measurement.
+     * @param unit     The unit of the duration.
+     * @return {@code true} if the scans were successful,
+     *         {@code false} if not connected or if reset was used.
+     */
+    public boolean scanFor(long duration, TimeUnit unit) {
+        return scan(() -> measureFor(duration, unit));
+    }
+
+    /**
+     * Scans until {@link #stopMeasurement()} is called, for example by an external trigger.
+     *
+     * @return {@code true} if the scans were successful,
+     *         {@code false} if not connected or if reset was used.
+     */
+    public boolean scanUntilStopped() {
+        return scan(this::measureUntilStopped);
+    }
+
+    private boolean scan(BooleanSupplier measurement) {
         // Check if connected
         if (!isConnected) {
             return false;
@@ -137,8 +940,8 @@ public class LMS400 extends Thread {
         // Activate scanning
         startScanning();
 
-        // Perform the required number of scans
-        measure(N);
+        // Perform the measurement
+        measurement.getAsBoolean();
 
         // Deactivate scanning
         stopScanning();
@@ -153,7 +956,11 @@ public class LMS400 extends Thread {
     }
 
     public void startScanning() {
-        this.isWorking = command("sMN mLRreqdata 0021", "sMA mLRreqdata", "sAN mLRreqdata 00000000");
+        int format = decoder.isRemissionEnabled() ? ScanDecoder.FORMAT_REMISSION_8 : ScanDecoder.FORMAT_DISTANCE;
+        String cmd = String.format("sMN mLRreqdata %04X", format);
+        scanningCommand = cmd;
+        isSequenceReset = true; // The device starts counting scans again
+        this.isWorking = command(cmd, "sMA mLRreqdata", "sAN mLRreqdata 00000000");
     }
 
     public void stopScanning() {
@@ -163,10 +970,10 @@ public class LMS400 extends Thread {
 
     /**
      * Sends a SOPAS method by name ("sMN") and receives SOPAS method acknowledged ("sMA") and SOPAS answer ("sAN").
-     * Uses send, receive, and check functions.
+     * Uses commandAsync and check functions.
      *
      * @param cmd The SOPAS method to be sent.
-     * @param a1  The expected SOPAS method acknowledged answer.
+     * @param a1  The expected SOPAS method acknowledged answer, or {@code null} if not checked.
      * @param a2  The expected SOPAS answer.
      * @return {@code true} if received SOPAS method acknowledged and SOPAS answer,
      *         {@code false} if received SOPAS fault answer ("sFA") or the device is disconnected.
@@ -176,110 +983,51 @@ public class LMS400 extends Thread {
             return false;
         }
 
-        send(cmd);
-
-        String ans1 = receiveTelegram();
-
-        if (check(ans1, a1) != 1) {
-            return false;
-        }
-
-        String ans2 = receiveTelegram();
-
-        return check(ans2, a2) == 1;
-    }
-
-    /**
-     * Sends a command frame.
-     * The frame begins with 4 times STX, 4 bytes of length in hex, the telegram, and ends with a checksum.
-     *
-     * @param cmd The command to be sent.
-     */
-    private void send(String cmd) {
-        char checksum = 0;
-        int len = cmd.length();
-
-        try (OutputStream outputStream = socket.getOutputStream()) {
-            // Send STX
-            for (int i = 0; i < 4; i++) {
-                outputStream.write(STX);
-            }
-
-            // Send length as hex
-            for (int i = 0; i < 4; i++) {
-                int temp = len / (int) Math.pow(16, (6 - 2 * i));
-                outputStream.write(temp);
-                len = len % (int) Math.pow(16, (6 - 2 * i));
-            }
+        try {
+            SopasReply reply = commandAsync(cmd).get();
 
-            // Send telegram and calculate checksum
-            for (int i = 0; i < cmd.length(); i++) {
-                outputStream.write(cmd.charAt(i));
-                checksum = (char) (checksum ^ cmd.charAt(i));
+            if (check(reply, a2) != 1) {
+                return false;
             }
 
-            // Send checksum
-            outputStream.write(checksum);
-            outputStream.flush();
-        } catch (IOException e) {
-            e.printStackTrace(); // Handle or log the exception
+            return a1 == null || (reply.getAcknowledgement() != null && check(reply.getAcknowledgement(), a1) == 1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            e.getCause().printStackTrace(); // Handle or log the exception
+            return false;
         }
     }
 
     /**
-     * Receives a telegram answer.
-     * Returns the length and telegram as a string.
+     * Sends a SOPAS command without waiting for the answer.
+     * Several commands may be in flight at once, also while measurement telegrams are streaming;
+     * the acquisition thread routes every answer to its command.
      *
-     * @return The received telegram as a string.
+     * @param cmd The SOPAS command to be sent.
+     * @return The future completed with the answer of the device, or completed exceptionally
+     *         if sending fails, the device is disconnected or no answer arrives in time.
      */
-    private String receiveTelegram() {
+    public CompletableFuture<SopasReply> commandAsync(String cmd) {
         if (!isConnected) {
-            return null;
+            return CompletableFuture.failedFuture(new IOException("Not connected"));
         }
 
-        StringBuilder b = new StringBuilder();
-        int c = 0;
-        int len = 0;
+        CompletableFuture<SopasReply> future;
 
-        // Skip STX
-        for (int i = 0; i < 4; i++) {
-            try {
-                c = this.in.read();
-            } catch (IOException e) {
-                e.printStackTrace(); // Handle or log the exception
-            }
-        }
+        // Register and send under one lock, so the pending commands are in the order they were sent
+        synchronized (dispatcher) {
+            future = dispatcher.register(cmd);
 
-        // Count length and save
-        for (int i = 0; i < 4; i++) {
             try {
-                c = this.in.read();
-                b.append((char) c);
-                len = len + (c * (int) Math.pow(16, (6 - 2 * i)));
+                writer.write(cmd);
             } catch (IOException e) {
-                e.printStackTrace(); // Handle or log the exception
+                future.completeExceptionally(e);
             }
         }
 
-        // Save telegram
-        for (int i = 0; i < len; i++) {
-            try {
-                c = this.in.read();
-                b.append((char) c);
-            } catch (IOException e) {
-                e.printStackTrace(); // Handle or log the exception
-            }
-        }
-
-        // Get checksum
-        try {
-            c = this.in.read();
-        } catch (IOException e) {
-            e.printStackTrace(); // Handle or log the exception
-        }
-
-        // Return received telegram as string
-        return b.toString();
+        return future.orTimeout(REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
     }
 
     /**
@@ -289,181 +1037,226 @@ public class LMS400 extends Thread {
      * @param expectedAnswer The expected answer.
      * @return 1 if the answer is expected, -1 if it's an error ("sFA FF"), 0 if it's unexpected.
      */
-    private int check(String receivedAnswer, String expectedAnswer) {
-        if (receivedAnswer.equals(expectedAnswer)) {
-            return 1; // Expected answer
-        } else if (receivedAnswer.contains("sFA FF")) {
-            return -1; // Error
+    private int check(SopasReply receivedAnswer, String expectedAnswer) {
+        int result;
+
+        if (receivedAnswer.toString().equals(expectedAnswer)) {
+            result = 1; // Expected answer
+        } else if (receivedAnswer.isError()) {
+            result = -1; // Error
         } else {
-            stringData.add(receivedAnswer);
-            return 0; // Unexpected answer
+            result = 0; // Unexpected answer
         }
+
+        metrics.replyChecked(result);
+        return result;
     }
 
     /**
      * Measures data from the device.
      *
-     * @return {@code true} if the measurement is successful, {@code false} if an exception occurs.
+     * @return {@code true} if the measurement is successful, {@code false} if disconnected or reset interrupts.
      */
     public boolean measure() {
-        try {
-            // Receive string
-            String receivedString = receiveTelegram();
-
-            // Add received string to stringData ArrayList
-            stringData.add(receivedString);
-
-            // Add measurement logic here if needed
-
-            return true; // Measurement successful
-        } catch (Exception e) {
-            e.printStackTrace(); // Handle or log the exception
-            return false; // Measurement failed
-        }
+        return measure(1);
     }
 
     /**
      * Measures data from the device a specified number of times.
+     * Waits until the decoder thread has stored the requested number of scans.
      *
      * @param N The number of measurements to perform.
-     * @return {@code true} if all measurements are successful, {@code false} if an exception occurs or reset interrupts.
+     * @return {@code true} if all measurements are successful, {@code false} if disconnected or reset interrupts.
      */
     public boolean measure(int N) {
-        try {
-            for (int i = 0; i < N; i++) {
-                // Receive string
-                String receivedString = receiveTelegram();
-
-                // Add received string to stringData ArrayList
-                stringData.add(receivedString);
-
-                if (isReset) {
-                    stringData.clear();
-                    return false; // Measurement interrupted due to reset
-                }
-            }
-
-            return true; // All measurements successful
-        } catch (Exception e) {
-            e.printStackTrace(); // Handle or log the exception
-            return false; // Measurement failed due to exception
-        }
+        return measure(N, 0);
     }
 
     /**
-     * Processes the received string data by calling {@code processStringData} for each element in stringData.
+     * Measures data from the device for the specified duration.
+     * Stores the scans whose telegrams are received within the duration.
+     *
+     * @param duration The duration of the measurement.
+     * @param unit     The unit of the duration.
+     * @return {@code true} if the measurement is successful, {@code false} if disconnected or reset interrupts.
      */
-    public void process() {
-        for (String stringDatum : stringData) {
-            processStringData(stringDatum);
-        }
+    public boolean measureFor(long duration, TimeUnit unit) {
+        return measure(Long.MAX_VALUE, Math.max(1, unit.toNanos(duration)));
     }
 
     /**
-     * Processes the received data string and adds it to scanData.
+     * Measures data from the device until {@link #stopMeasurement()} is called.
      *
-     * @param receivedData The received data string from the device.
+     * @return {@code true} if the measurement is successful, {@code false} if disconnected or reset interrupts.
      */
-    private void processStringData(String receivedData) {
-        ArrayList<Point> data = new ArrayList<>();
-
-        int currentIndex = 0;   // Iterator for received string
-        int telegramLength = extractLength(receivedData, currentIndex);
-        currentIndex += 4;
+    public boolean measureUntilStopped() {
+        return measure(Long.MAX_VALUE, 0);
+    }
 
-        // ... (skip format and scaling)
+    /**
+     * Ends the measurement in progress and keeps the scans stored so far, unlike a reset.
+     */
+    public void stopMeasurement() {
+        isStopRequested = true;
 
-        int startingAngle = extractValue(receivedData, currentIndex, 8);
-        currentIndex += 8;
+        ScanStore store = scanData;
+        synchronized (store) {
+            store.notifyAll(); // Wake up a waiting measurement
+        }
+    }
 
-        int angularResolution = extractValue(receivedData, currentIndex, 12);
-        currentIndex += 2;
+    /**
+     * Waits until the decoder thread has stored the scans of a measurement.
+     *
+     * @param maxScans The number of scans after which the measurement ends, {@link Long#MAX_VALUE} for no limit.
+     * @param maxNanos The duration in ns after which the measurement ends, 0 for no limit.
+     * @return {@code true} if the measurement is successful, {@code false} if disconnected or reset interrupts.
+     */
+    private boolean measure(long maxScans, long maxNanos) {
+        if (!isConnected) {
+            return false;
+        }
 
-        int numberOfPoints = extractValue(receivedData, currentIndex, 14);
-        currentIndex += 2;
+        ScanStore store = scanData;
 
-        // ... (skip scanning frequency, remission scaling, remission start and end values)
-        currentIndex += 8;
+        synchronized (store) {
+            long initialCount = store.getAdded();
+            long targetCount = maxScans == Long.MAX_VALUE ? Long.MAX_VALUE : initialCount + maxScans;
+            long deadline = System.nanoTime() + maxNanos;
 
-        for (int pointIndex = 0; pointIndex < numberOfPoints; pointIndex++) {
-            int distance = extractDistance(receivedData, currentIndex);
-            currentIndex += 2;
+            isStopRequested = false;
+            collectDeadline = deadline;
+            hasCollectDeadline = maxNanos > 0;
+            scansToCollect.set(maxScans);
 
-            int angle = startingAngle + (angularResolution * pointIndex);
+            try {
+                // Count added scans rather than stored scans, which stop growing once the oldest are dropped
+                while (store.getAdded() < targetCount && !isStopRequested) {
+                    if (isReset || !isRunning) {
+                        // The decoder counts down and adds holding the store, no scan of this measurement is pending
+                        scansToCollect.set(0);
+                        store.removeLast((int) (store.getAdded() - initialCount));
+                        return false; // Measurement interrupted due to reset or disconnection
+                    }
+
+                    long waitMillis = 100;
+                    if (maxNanos > 0) {
+                        long remaining = deadline - System.nanoTime();
+                        if (remaining <= 0) {
+                            break; // Duration elapsed
+                        }
+                        waitMillis = Math.min(waitMillis, TimeUnit.NANOSECONDS.toMillis(remaining) + 1);
+                    }
+
+                    store.wait(waitMillis);
+                }
 
-            // Add new point to ArrayList of Points
-            data.add(new Point(distance, angle));
+                return true; // Measurement successful
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false; // Measurement failed due to interruption
+            } finally {
+                scansToCollect.set(0);
+                hasCollectDeadline = false;
+                isStopRequested = false;
+            }
         }
-
-        // Add ArrayList of Points to ArrayList of ArrayLists of Points
-        scanData.add(data);
     }
 
     /**
-     * Extracts the length from the received data string.
+     * Decodes a telegram log, see {@link #startTelegramRecording(String)}, into the scan storage on the calling thread.
+     * The measurement telegrams are read in batches that are decoded in parallel; the filters are then applied
+     * and the scans stored in the order of the log. Unlike {@link #replay(Path, boolean)}, the listeners are not called.
      *
-     * @param receivedData The received data string from the device.
-     * @param currentIndex The current index in the received data string.
-     * @return The extracted length.
+     * @param path The path of the telegram log.
+     * @return The number of scans stored, or -1 if connected, replaying or reading the log failed.
      */
-    private int extractLength(String receivedData, int currentIndex) {
-        int length = 0;
-        for (int i = 0; i < 4; i++) {
-            int charValue = receivedData.charAt(currentIndex + i);
-            length += (int) (charValue * Math.pow(16, 6 - 2 * i));
+    public long decodeTelegramLog(Path path) {
+        if (isConnected || isRunning) {
+            return -1;
         }
-        return length;
-    }
 
-    /**
-     * Extracts a value from the received data string.
-     *
-     * @param receivedData The received data string from the device.
-     * @param currentIndex The current index in the received data string.
-     * @param endIndex The end index for extracting the value.
-     * @return The extracted value.
-     */
-    private int extractValue(String receivedData, int currentIndex, int endIndex) {
-        int value = 0;
-        for (int i = currentIndex; i < endIndex; i++) {
-            int j = i - (endIndex - 8);
-            int charValue = receivedData.charAt(i);
-            value += (int) (charValue * Math.pow(16, 2 * j));
-        }
-        return value;
-    }
+        ScanDecoder decoder = this.decoder;
+        ScanFilterChain filters = filterChain;
+        SequenceTracker tracker = new SequenceTracker();
 
-    /**
-     * Extracts the distance from the received data string.
-     *
-     * @param receivedData The received data string from the device.
-     * @param currentIndex The current index in the received data string.
-     * @return The extracted distance.
-     */
-    private int extractDistance(String receivedData, int currentIndex) {
-        int temp1 = receivedData.charAt(currentIndex);
-        int temp2 = receivedData.charAt(currentIndex + 1);
-        int distance = temp2 * 256 + temp1;
+        Frame[] frames = new Frame[LOG_BATCH_SIZE];
+        long[] sequenceNumbers = new long[LOG_BATCH_SIZE];
+        Scan[] scans = new Scan[LOG_BATCH_SIZE];
+        ArrayList<Frame> batch = new ArrayList<>(LOG_BATCH_SIZE);
+        long stored = 0;
 
-        if (distance > 3000 || distance < 700) {
-            distance = 0;
+        if (filters != null) {
+            filters.reset();
         }
 
-        return distance;
-    }
+        try (TelegramLogReader log = new TelegramLogReader(path)) {
+            boolean hasMore = true;
+            int segment = 0;
+
+            while (hasMore) {
+                batch.clear();
+
+                while (batch.size() < LOG_BATCH_SIZE) {
+                    int i = batch.size();
+                    if (frames[i] == null) {
+                        frames[i] = new Frame(FRAME_CAPACITY);
+                    }
+
+                    hasMore = log.read(frames[i]);
+                    if (!hasMore) {
+                        break; // End of log
+                    }
+
+                    if (log.getSegment() != segment) {
+                        segment = log.getSegment();
+                        tracker.reset(); // A new recording session, the device counts scans again
+                    }
+
+                    if (ScanDecoder.isMeasurement(frames[i])) {
+                        sequenceNumbers[i] = tracker.next(ScanDecoder.scanCounter(frames[i]));
+                        batch.add(frames[i]);
+                    }
+                }
+
+                decoder.decodeAll(batch, scans);
+
+                for (int i = 0; i < batch.size(); i++) {
+                    if (scans[i] == null) {
+                        continue; // Too short for a measurement telegram
+                    }
 
+                    scans[i].setSequenceNumber(sequenceNumbers[i]);
+                    if (filters != null) {
+                        filters.apply(scans[i]);
+                    }
+
+                    scanData.add(scans[i]);
+                    stored++;
+                }
+            }
+
+            return stored;
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception
+            return -1;
+        }
+    }
 
     public boolean printData() {
         if (scanData.isEmpty()) {
             return false; // No scan data available
         }
 
+        Scan scan = new Scan();
+
         for (int i = 0; i < scanData.size(); i++) {
             System.out.print("Scan " + i + " ");
 
-            for (int j = 0; j < scanData.get(i).size(); j++) {
-                Point point = scanData.get(i).get(j);
-                System.out.print("(" + (int) point.getX() + "," + (int) point.getY() + ") ");
+            scanData.get(i, scan);
+
+            for (int j = 0; j < scan.getNumberOfPoints(); j++) {
+                System.out.print("(" + (int) scan.getX(j) + "," + (int) scan.getY(j) + ") ");
             }
 
             System.out.println(); // Move to the next line after printing each scan
@@ -496,34 +1289,125 @@ public class LMS400 extends Thread {
 
     private void saveScanDataToFile(String filePath) throws FileNotFoundException {
         try (PrintStream ps = new PrintStream(new FileOutputStream(filePath))) {
+            Scan scan = new Scan();
+
             for (int i = 0; i < scanData.size(); i++) {
-                for (int j = 0; j < scanData.get(i).size(); j++) {
-                    Point point = scanData.get(i).get(j);
-                    ps.println(point.getX() + " " + (double) i + " " + (0 - point.getY()));
+                scanData.get(i, scan);
+
+                for (int j = 0; j < scan.getNumberOfPoints(); j++) {
+                    ps.println(scan.getX(j) + " " + (double) i + " " + (0 - scan.getY(j)));
                 }
             }
         }
     }
 
+    /**
+     * Saves the scan data as a point cloud downsampled on a voxel grid, one "x y z" line per occupied voxel.
+     * Unlike {@link #saveData(String)}, the position along the conveyor is the distance moved, not the scan index.
+     * To build the cloud while scanning, register a {@link PointCloudBuilder} with {@link #addScanListener}.
+     *
+     * @param filename           The name of the file, without extension, in the project directory.
+     * @param voxelSize          The edge length of a voxel in mm.
+     * @param millimetersPerScan The distance the conveyor moves between two scans in mm.
+     * @return {@code true} if the data was saved, {@code false} if there is no data or writing failed.
+     */
+    public boolean savePointCloud(String filename, double voxelSize, double millimetersPerScan) {
+        if (scanData.isEmpty()) {
+            return false;
+        }
+
+        PointCloudBuilder builder = PointCloudBuilder.ofScanSpacing(voxelSize, millimetersPerScan);
+        Scan scan = new Scan();
+
+        for (int i = 0; i < scanData.size(); i++) {
+            builder.onScan(scanData.get(i, scan));
+        }
+
+        try {
+            String projectDirectory = System.getProperty("user.dir");
+            builder.save(projectDirectory + File.separator + filename + ".txt");
+            return true;
+        } catch (FileNotFoundException e) {
+            e.printStackTrace(); // Handle or log the exception
+            return false;
+        }
+    }
+
+    /**
+     * Saves the scan data in the binary scan file format, see {@link ScanFileFormat}.
+     *
+     * @param filename The name of the file, without extension, in the project directory.
+     * @return {@code true} if the data was saved, {@code false} if there is no data or writing failed.
+     */
+    public boolean saveBinaryData(String filename) {
+        if (scanData.isEmpty()) {
+            return false;
+        }
+
+        String projectDirectory = System.getProperty("user.dir");
+        Path filePath = Paths.get(projectDirectory, filename + ".lms");
+
+        try (ScanFileWriter writer = new ScanFileWriter(filePath)) {
+            Scan scan = new Scan();
+
+            for (int i = 0; i < scanData.size(); i++) {
+                writer.write(scanData.get(i, scan));
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception
+            return false;
+        }
+    }
+
+    /**
+     * Saves the scan data in the compressed scan file format, see {@link CompressedScanFormat},
+     * which takes a fraction of the space of the binary format and decodes in parallel with
+     * {@link CompressedScanReader#readAll(Scan[])}.
+     *
+     * @param filename The name of the file, without extension, in the project directory.
+     * @return {@code true} if the data was saved, {@code false} if there is no data or writing failed.
+     */
+    public boolean saveCompressedData(String filename) {
+        if (scanData.isEmpty()) {
+            return false;
+        }
+
+        String projectDirectory = System.getProperty("user.dir");
+        Path filePath = Paths.get(projectDirectory, filename + ".lmsz");
+
+        try (CompressedScanWriter writer = new CompressedScanWriter(filePath)) {
+            Scan scan = new Scan();
+
+            for (int i = 0; i < scanData.size(); i++) {
+                writer.write(scanData.get(i, scan));
+            }
+            return true;
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception
+            return false;
+        }
+    }
+
     public boolean simulateScan(int N) {
         final int DEFAULT_DISTANCE = 1500;
         final int STARTING_ANGLE = 550000;
         final int ANGULAR_RESOLUTION = 2500;
         final int NUMBER_OF_POINTS = 280;
 
+        Scan scan = new Scan(NUMBER_OF_POINTS);
+
         for (int i = 0; i < N; i++) {
             if (this.isReset) {
                 break;
             }
 
-            ArrayList<Point> data = new ArrayList<>();
-
-            for (int j = 0; j < NUMBER_OF_POINTS; j++) {
-                int angle = STARTING_ANGLE + (ANGULAR_RESOLUTION * j);
-                data.add(new Point(DEFAULT_DISTANCE, angle));
-            }
+            scan.setGrid(STARTING_ANGLE, ANGULAR_RESOLUTION, NUMBER_OF_POINTS, 0);
+            scan.setTimestamp(System.nanoTime());
+            Arrays.fill(scan.getDistances(), 0, NUMBER_OF_POINTS, DEFAULT_DISTANCE);
+            scan.updateValidMask();
 
-            scanData.add(data);
+            scanData.add(scan);
         }
 
         return true;
@@ -0,0 +1,367 @@
+package sick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.AsynchronousCloseException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A local TCP stand-in for the LMS400 speaking the SOPAS binary protocol.
+ * Answers "sMN mLRreqdata" and "sMN mLRstopdata" like the device and, while scanning,
+ * streams measurement telegrams at a configurable rate, number of points and noise.
+ * Serves one client at a time, which is enough to exercise the whole socket path of {@link LMS400}.
+ */
+public class LMS400Simulator implements Closeable {
+
+    private static final byte STX = 0x02;
+    private static final int REMISSION = 120;
+    private static final double REMISSION_NOISE = 10.0;
+    private static final byte[] MEASUREMENT_HEADER = "sSN LMDscandata ".getBytes(StandardCharsets.US_ASCII);
+
+    private final int port;
+    private final double scanFrequency;
+    private final int numberOfPoints;
+    private final int startingAngle;
+    private final int angularResolution;
+    private final int baseDistance;
+    private final double noise;
+    private final double dropoutRate;
+
+    private ServerSocketChannel server = null;
+    private Thread acceptThread = null;
+    private volatile boolean isRunning = false;
+    private volatile boolean isStreaming = false;
+    private volatile int format = ScanDecoder.FORMAT_DISTANCE;
+    private volatile long sentScans = 0;
+    private volatile double corruptionRate = 0.0;
+    private volatile SocketChannel client = null;
+    private int scanCounter = 0;
+
+    public LMS400Simulator(int port) {
+        this(port, 190, 280, 550000, 2500, 1500, 2.0, 0.0);
+    }
+
+    /**
+     * @param port              The TCP port to listen on, 0 for any free port.
+     * @param scanFrequency     The number of measurement telegrams sent per second.
+     * @param numberOfPoints    The number of points in each scan.
+     * @param startingAngle     The angle of the first point in 1/10000 degree.
+     * @param angularResolution The angle between consecutive points in 1/10000 degree.
+     * @param baseDistance      The simulated distance to the conveyor in mm.
+     * @param noise             The standard deviation of the Gaussian distance noise in mm.
+     * @param dropoutRate       The probability of a point without echo (distance 0).
+     */
+    public LMS400Simulator(int port, double scanFrequency, int numberOfPoints, int startingAngle,
+                           int angularResolution, int baseDistance, double noise, double dropoutRate) {
+        this.port = port;
+        this.scanFrequency = scanFrequency;
+        this.numberOfPoints = numberOfPoints;
+        this.startingAngle = startingAngle;
+        this.angularResolution = angularResolution;
+        this.baseDistance = baseDistance;
+        this.noise = noise;
+        this.dropoutRate = dropoutRate;
+    }
+
+    /**
+     * Starts listening for a client.
+     *
+     * @return The port the simulator listens on.
+     * @throws IOException If the port cannot be bound.
+     */
+    public int start() throws IOException {
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress("127.0.0.1", port));
+        isRunning = true;
+
+        acceptThread = new Thread(this::acceptClients, "LMS400-simulator");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+
+        return getPort();
+    }
+
+    public int getPort() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    public long getSentScans() {
+        return sentScans;
+    }
+
+    /**
+     * Makes the simulator damage some measurement telegrams, by flipping or dropping a byte, to exercise recovery.
+     *
+     * @param corruptionRate The probability that a telegram is damaged.
+     */
+    public void setCorruptionRate(double corruptionRate) {
+        this.corruptionRate = corruptionRate;
+    }
+
+    /**
+     * Closes the connection to the current client, as if the network failed. The simulator accepts the next client.
+     *
+     * @throws IOException If closing fails.
+     */
+    public void disconnectClient() throws IOException {
+        SocketChannel client = this.client;
+        if (client != null) {
+            client.close();
+        }
+    }
+
+    private void acceptClients() {
+        while (isRunning) {
+            try (SocketChannel client = server.accept()) {
+                client.socket().setTcpNoDelay(true);
+                this.client = client;
+                serve(client);
+            } catch (AsynchronousCloseException e) {
+                // Closed by disconnectClient
+            } catch (IOException e) {
+                if (isRunning) {
+                    e.printStackTrace(); // Handle or log the exception
+                }
+            } finally {
+                isStreaming = false;
+            }
+        }
+    }
+
+    /**
+     * Answers the commands of a client until it disconnects.
+     */
+    private void serve(SocketChannel client) throws IOException {
+        TelegramReader reader = new TelegramReader(client, 4096);
+        ByteBuffer replyBuffer = ByteBuffer.allocateDirect(256);
+        Frame command = new Frame(256);
+        Thread streamThread = null;
+
+        try {
+            while (reader.read(command)) {
+                if (command.startsWith("sMN mLRreqdata")) {
+                    setFormat(command.toString());
+                    reply(client, replyBuffer, "sMA mLRreqdata");
+                    reply(client, replyBuffer, "sAN mLRreqdata 00000000");
+
+                    if (!isStreaming) {
+                        isStreaming = true;
+                        scanCounter = 0; // Like the device, count scans again from the start of scanning
+                        streamThread = new Thread(() -> stream(client), "LMS400-simulator-stream");
+                        streamThread.setDaemon(true);
+                        streamThread.start();
+                    }
+                } else if (command.startsWith("sMN mLRstopdata")) {
+                    stopStreaming(streamThread);
+                    streamThread = null;
+
+                    reply(client, replyBuffer, "sMA mLRstopdata");
+                    reply(client, replyBuffer, "sAN mLRstopdata 00000000");
+                } else {
+                    reply(client, replyBuffer, "sFA FF");
+                }
+            }
+        } finally {
+            stopStreaming(streamThread);
+        }
+    }
+
+    /**
+     * Takes the output format from the argument of "sMN mLRreqdata", for example "0021".
+     */
+    private void setFormat(String command) {
+        String[] parts = command.split(" ");
+
+        try {
+            format = parts.length > 2 ? Integer.parseInt(parts[2], 16) : ScanDecoder.FORMAT_DISTANCE;
+        } catch (NumberFormatException e) {
+            format = ScanDecoder.FORMAT_DISTANCE;
+        }
+    }
+
+    /**
+     * Sets the output format used by {@link #putMeasurement}, normally requested by the client.
+     *
+     * @param format One of the {@code ScanDecoder.FORMAT_} values.
+     */
+    public void setFormat(int format) {
+        this.format = format;
+    }
+
+    private void stopStreaming(Thread streamThread) {
+        isStreaming = false;
+
+        if (streamThread != null) {
+            try {
+                streamThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void reply(SocketChannel client, ByteBuffer buffer, String text) throws IOException {
+        buffer.clear();
+        int length = text.length();
+
+        putFrameHeader(buffer, length);
+        byte checksum = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = (byte) text.charAt(i);
+            buffer.put(b);
+            checksum ^= b;
+        }
+        buffer.put(checksum);
+
+        write(client, buffer);
+    }
+
+    /**
+     * Streams measurement telegrams at the configured rate until streaming is stopped.
+     */
+    private void stream(SocketChannel client) {
+        int maxLength = 8 + getPayloadLength(ScanDecoder.FORMAT_REMISSION_16) + 1;
+        ByteBuffer buffer = ByteBuffer.allocateDirect(maxLength).order(ByteOrder.LITTLE_ENDIAN);
+        SplittableRandom random = new SplittableRandom();
+
+        long period = (long) (1e9 / scanFrequency);
+        long deadline = System.nanoTime();
+
+        try {
+            while (isStreaming) {
+                buffer.clear();
+                putMeasurement(buffer, random);
+                if (corruptionRate > 0 && random.nextDouble() < corruptionRate) {
+                    corrupt(buffer, random);
+                }
+                write(client, buffer);
+                sentScans++;
+
+                deadline += period;
+                long delay = deadline - System.nanoTime();
+                if (delay > 0) {
+                    LockSupport.parkNanos(delay);
+                }
+            }
+        } catch (IOException e) {
+            isStreaming = false; // Client disconnected
+        }
+    }
+
+    /**
+     * @return The length of a complete measurement telegram, including STX, length and checksum.
+     */
+    public int getTelegramLength() {
+        return 8 + getPayloadLength(format) + 1;
+    }
+
+    private int getPayloadLength(int format) {
+        int remissionBytes = ScanDecoder.remissionBytes(format);
+        return MEASUREMENT_HEADER.length + ScanDecoder.DISTANCES_OFFSET + (2 + remissionBytes) * numberOfPoints
+                + ScanDecoder.SCAN_COUNTER_LENGTH;
+    }
+
+    /**
+     * Puts a complete measurement telegram with simulated distances at the current position of the buffer.
+     *
+     * @param buffer The buffer to fill, in little-endian order.
+     * @param random The source of the simulated noise.
+     */
+    public void putMeasurement(ByteBuffer buffer, SplittableRandom random) {
+        int format = this.format;
+        int remissionBytes = ScanDecoder.remissionBytes(format);
+
+        putFrameHeader(buffer, getPayloadLength(format));
+        int payloadStart = buffer.position();
+
+        buffer.put(MEASUREMENT_HEADER);
+        buffer.putShort((short) format);
+        buffer.putFloat(1.0f);                                  // Distance scaling
+        buffer.putInt(startingAngle);
+        buffer.putShort((short) angularResolution);
+        buffer.putShort((short) numberOfPoints);
+        buffer.putShort((short) Math.round(scanFrequency * 100));
+        buffer.putShort((short) 0);                             // Remission scaling
+        buffer.putShort((short) 0);                             // Remission start value
+        buffer.putShort((short) 0);                             // Remission end value
+
+        for (int i = 0; i < numberOfPoints; i++) {
+            int distance = 0;
+            if (dropoutRate <= 0 || random.nextDouble() >= dropoutRate) {
+                distance = (int) Math.round(baseDistance + noise * gaussian(random));
+            }
+            buffer.putShort((short) distance);
+        }
+
+        for (int i = 0; i < numberOfPoints; i++) {
+            int remission = (int) Math.round(REMISSION + REMISSION_NOISE * gaussian(random));
+            if (remissionBytes == 1) {
+                buffer.put((byte) Math.max(0, Math.min(255, remission)));
+            } else if (remissionBytes == 2) {
+                buffer.putShort((short) Math.max(0, remission << 8));
+            }
+        }
+
+        buffer.putShort((short) scanCounter++);
+
+        byte checksum = 0;
+        for (int i = payloadStart; i < buffer.position(); i++) {
+            checksum ^= buffer.get(i);
+        }
+        buffer.put(checksum);
+    }
+
+    /**
+     * Flips or drops one random byte of the telegram before the current position of the buffer.
+     */
+    private static void corrupt(ByteBuffer buffer, SplittableRandom random) {
+        int index = random.nextInt(buffer.position());
+
+        if (random.nextBoolean()) {
+            buffer.put(index, (byte) ~buffer.get(index));
+        } else {
+            for (int i = index; i < buffer.position() - 1; i++) {
+                buffer.put(i, buffer.get(i + 1));
+            }
+            buffer.position(buffer.position() - 1);
+        }
+    }
+
+    private static double gaussian(SplittableRandom random) {
+        // Box-Muller transform
+        double u = 1.0 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * v);
+    }
+
+    private static void putFrameHeader(ByteBuffer buffer, int length) {
+        for (int i = 0; i < 4; i++) {
+            buffer.put(STX);
+        }
+        buffer.order(ByteOrder.BIG_ENDIAN).putInt(length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private synchronized void write(SocketChannel client, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            client.write(buffer);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        isRunning = false;
+        isStreaming = false;
+
+        if (server != null) {
+            server.close();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package sick;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of durations in ns with power-of-two buckets.
+ * Bucket {@code b} counts the durations from {@code 2^(b-1)} up to {@code 2^b - 1} ns, bucket 0 counts zero.
+ * Recording costs a few plain stores and is meant for a single writing thread; any thread may read.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = 64;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration. Must be called by one thread at a time.
+     *
+     * @param nanos The duration in ns, negative durations are recorded as 0.
+     */
+    void record(long nanos) {
+        long value = Math.max(0, nanos);
+        int bucket = BUCKETS - Long.numberOfLeadingZeros(value);
+
+        buckets.lazySet(bucket, buckets.get(bucket) + 1);
+        count.lazySet(count.get() + 1);
+        sum.lazySet(sum.get() + value);
+
+        if (value > max.get()) {
+            max.lazySet(value);
+        }
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMean() {
+        long n = count.get();
+        return n > 0 ? (double) sum.get() / n : 0;
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    /**
+     * Estimates a percentile by the upper bound of the bucket that contains it.
+     *
+     * @param percentile The percentile, from 0 to 100.
+     * @return The estimated duration in ns, 0 if nothing was recorded.
+     */
+    public long getPercentile(double percentile) {
+        long[] counts = getBuckets();
+        long total = 0;
+        for (long c : counts) {
+            total += c;
+        }
+
+        long rank = (long) Math.ceil(total * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank && counts[bucket] > 0) {
+                long upperBound = bucket == 0 ? 0 : (1L << bucket) - 1;
+                return Math.min(upperBound, max.get());
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return A copy of the bucket counts, see the class description for the bucket bounds.
+     */
+    public long[] getBuckets() {
+        long[] counts = new long[BUCKETS];
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            counts[bucket] = buckets.get(bucket);
+        }
+        return counts;
+    }
+
+    /**
+     * Clears the histogram. Durations recorded at the same time may be lost.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            buckets.set(bucket, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+}
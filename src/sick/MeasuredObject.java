@@ -0,0 +1,106 @@
+package sick;
+
+/**
+ * The dimensions of one object that passed the scanner, as measured by an {@link ObjectDimensioner}.
+ * The length runs along the conveyor, the width across it and the height above the learned background.
+ */
+public final class MeasuredObject {
+
+    private final long index;
+    private final long startTimestamp;
+    private final long endTimestamp;
+    private final double length;
+    private final double width;
+    private final double height;
+    private final double volume;
+    private final int numberOfScans;
+    private final long numberOfPoints;
+
+    MeasuredObject(long index, long startTimestamp, long endTimestamp, double length, double width, double height,
+                   double volume, int numberOfScans, long numberOfPoints) {
+        this.index = index;
+        this.startTimestamp = startTimestamp;
+        this.endTimestamp = endTimestamp;
+        this.length = length;
+        this.width = width;
+        this.height = height;
+        this.volume = volume;
+        this.numberOfScans = numberOfScans;
+        this.numberOfPoints = numberOfPoints;
+    }
+
+    /**
+     * @return The number of objects measured before this one.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The timestamp of the first scan of the object, see {@link Scan#getTimestamp()}.
+     */
+    public long getStartTimestamp() {
+        return startTimestamp;
+    }
+
+    /**
+     * @return The timestamp of the last scan of the object, see {@link Scan#getTimestamp()}.
+     */
+    public long getEndTimestamp() {
+        return endTimestamp;
+    }
+
+    /**
+     * @return The length along the conveyor in mm, the distance covered by the scans of the object.
+     */
+    public double getLength() {
+        return length;
+    }
+
+    /**
+     * @return The width across the conveyor in mm, between the outermost points of the object.
+     */
+    public double getWidth() {
+        return width;
+    }
+
+    /**
+     * @return The largest height above the background in mm.
+     */
+    public double getHeight() {
+        return height;
+    }
+
+    /**
+     * @return The volume in mm^3, the cross-sections of the scans integrated along the conveyor.
+     */
+    public double getVolume() {
+        return volume;
+    }
+
+    /**
+     * @return The volume of the bounding box in mm^3.
+     */
+    public double getBoundingBoxVolume() {
+        return length * width * height;
+    }
+
+    public int getNumberOfScans() {
+        return numberOfScans;
+    }
+
+    public long getNumberOfPoints() {
+        return numberOfPoints;
+    }
+
+    @Override
+    public String toString() {
+        return "MeasuredObject{index=" + index
+                + ", length=" + length
+                + ", width=" + width
+                + ", height=" + height
+                + ", volume=" + volume
+                + ", numberOfScans=" + numberOfScans
+                + ", numberOfPoints=" + numberOfPoints + "}";
+    }
+}
@@ -0,0 +1,62 @@
+package sick;
+
+/**
+ * Replaces every valid distance by the median of the valid distances in a window of neighbouring beams,
+ * removing single-beam spikes while keeping edges.
+ * Invalid points stay invalid, so the filter does not fill gaps.
+ */
+public class MedianFilter implements ScanFilter {
+
+    private final int radius;
+    private final int[] window;
+    private int[] input = new int[0];
+
+    /**
+     * @param windowSize The number of beams in the window, an odd number of at least 3.
+     */
+    public MedianFilter(int windowSize) {
+        if (windowSize < 3 || windowSize % 2 == 0) {
+            throw new IllegalArgumentException("Window size must be odd and at least 3: " + windowSize);
+        }
+        this.radius = windowSize / 2;
+        this.window = new int[windowSize];
+    }
+
+    public int getWindowSize() {
+        return window.length;
+    }
+
+    @Override
+    public void filter(int[] distances, int numberOfPoints) {
+        if (input.length < numberOfPoints) {
+            input = new int[numberOfPoints];
+        }
+        System.arraycopy(distances, 0, input, 0, numberOfPoints);
+
+        for (int i = 0; i < numberOfPoints; i++) {
+            if (input[i] == 0) {
+                continue;
+            }
+
+            // Insertion sort of the valid distances in the window, which holds only a few values
+            int count = 0;
+            int end = Math.min(i + radius, numberOfPoints - 1);
+
+            for (int j = Math.max(i - radius, 0); j <= end; j++) {
+                int distance = input[j];
+                if (distance == 0) {
+                    continue;
+                }
+
+                int k = count++;
+                while (k > 0 && window[k - 1] > distance) {
+                    window[k] = window[k - 1];
+                    k--;
+                }
+                window[k] = distance;
+            }
+
+            distances[i] = window[(count - 1) / 2];
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package sick;
+
+/**
+ * Destination of the {@link AcquisitionMetrics} of a device, such as JMX or a metrics library.
+ * A registry reads the metrics whenever it reports them; registering adds no work to the acquisition threads.
+ * Timing of every decoded scan is enabled separately, see {@link AcquisitionMetrics#setTimingEnabled(boolean)}.
+ */
+public interface MetricsRegistry {
+
+    /**
+     * @param name    The name of the device, unique within the registry.
+     * @param metrics The metrics of the device.
+     * @return {@code true} if the metrics were registered.
+     */
+    boolean register(String name, AcquisitionMetrics metrics);
+
+    /**
+     * @param name The name the metrics were registered with.
+     * @return {@code true} if the metrics were unregistered.
+     */
+    boolean unregister(String name);
+}
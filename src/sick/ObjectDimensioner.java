@@ -0,0 +1,268 @@
+package sick;
+
+import java.util.Arrays;
+
+/**
+ * Measures the objects passing the scanner on a conveyor, one scan at a time.
+ * The first scans, taken of the empty conveyor, are averaged into a background profile with one distance per beam.
+ * After that, every point measured at least the minimum height closer than the background belongs to the foreground.
+ * A scan with enough foreground points belongs to an object; the object ends with the first run of empty scans,
+ * and its dimensions are passed to the listener right away, on the thread delivering the scans.
+ * <p>
+ * Each scan takes one pass over its beams and no allocation, only a measured object is allocated.
+ * Objects that pass side by side are measured as one. The height is the largest measured, so it includes the
+ * distance noise unless the scans are filtered first, see {@link LMS400#setFilters(ScanFilter...)}.
+ */
+public class ObjectDimensioner implements ScanListener {
+
+    /**
+     * Receives every object as soon as it has left the field of view.
+     */
+    public interface Listener {
+        void onObject(MeasuredObject object);
+    }
+
+    public static final int DEFAULT_LEARNING_SCANS = 100;
+    public static final double DEFAULT_MIN_HEIGHT = 10;
+    public static final int DEFAULT_MIN_POINTS = 3;
+    public static final int DEFAULT_GAP_SCANS = 2;
+
+    private final ConveyorAxis axis;
+    private final Listener listener;
+
+    private double minHeight = DEFAULT_MIN_HEIGHT;
+    private int minPoints = DEFAULT_MIN_POINTS;
+    private int gapScans = DEFAULT_GAP_SCANS;
+
+    // Background profile, valid for one angle grid
+    private int startingAngle = 0;
+    private int angularResolution = 0;
+    private int numberOfPoints = -1;
+    private long[] backgroundSum = new long[0];
+    private int[] backgroundCount = new int[0];
+    private double[] background = new double[0];
+    private int learningScans = DEFAULT_LEARNING_SCANS;
+    private int learnedScans = 0;
+
+    private boolean hasPreviousScan = false;
+    private double previousPosition = 0;
+
+    // The object currently passing
+    private boolean isInObject = false;
+    private long startTimestamp;
+    private long endTimestamp;
+    private double length;
+    private double minX;
+    private double maxX;
+    private double maxHeight;
+    private double volume;
+    private int objectScans;
+    private long objectPoints;
+    private int emptyScans;
+
+    private long numberOfObjects = 0;
+
+    private ObjectDimensioner(ConveyorAxis axis, Listener listener) {
+        this.axis = axis;
+        this.listener = listener;
+    }
+
+    /**
+     * Creates a dimensioner for scans taken a fixed distance apart, for example one encoder step.
+     *
+     * @param millimetersPerScan The distance the conveyor moves between two scans in mm.
+     * @param listener           The receiver of the measured objects.
+     * @return The dimensioner.
+     */
+    public static ObjectDimensioner ofScanSpacing(double millimetersPerScan, Listener listener) {
+        return new ObjectDimensioner(ConveyorAxis.ofScanSpacing(millimetersPerScan), listener);
+    }
+
+    /**
+     * Creates a dimensioner that places scans by their receive timestamps and a constant conveyor speed.
+     *
+     * @param millimetersPerSecond The speed of the conveyor in mm/s.
+     * @param listener             The receiver of the measured objects.
+     * @return The dimensioner.
+     */
+    public static ObjectDimensioner ofConveyorSpeed(double millimetersPerSecond, Listener listener) {
+        return new ObjectDimensioner(ConveyorAxis.ofConveyorSpeed(millimetersPerSecond), listener);
+    }
+
+    /**
+     * @param minHeight The smallest height above the background in mm of a foreground point.
+     */
+    public synchronized void setMinHeight(double minHeight) {
+        this.minHeight = minHeight;
+    }
+
+    /**
+     * @param minPoints The number of foreground points a scan needs to belong to an object.
+     */
+    public synchronized void setMinPoints(int minPoints) {
+        this.minPoints = minPoints;
+    }
+
+    /**
+     * Sets the number of consecutive empty scans that end an object. Higher values bridge gaps in the measurement
+     * of an object, such as dark patches without echo, but delay the result by as many scans.
+     *
+     * @param gapScans The number of empty scans, at least 1.
+     */
+    public synchronized void setGapScans(int gapScans) {
+        this.gapScans = Math.max(1, gapScans);
+    }
+
+    /**
+     * Learns the background again from the next scans, which must show the empty conveyor.
+     * An object currently being measured is discarded.
+     *
+     * @param scans The number of scans to average.
+     */
+    public synchronized void learnBackground(int scans) {
+        learningScans = Math.max(1, scans);
+        learnedScans = 0;
+        numberOfPoints = -1; // Restarts learning with the next scan
+        isInObject = false;
+    }
+
+    public synchronized boolean isLearning() {
+        return learnedScans < learningScans;
+    }
+
+    /**
+     * @return The number of objects measured so far.
+     */
+    public synchronized long getNumberOfObjects() {
+        return numberOfObjects;
+    }
+
+    /**
+     * Learns the background from the scan or adds its foreground to the current object.
+     *
+     * @param scan The decoded scan.
+     */
+    @Override
+    public synchronized void onScan(Scan scan) {
+        double position = axis.next(scan);
+        double step = hasPreviousScan ? position - previousPosition : 0;
+        hasPreviousScan = true;
+        previousPosition = position;
+
+        if (scan.getNumberOfPoints() != numberOfPoints
+                || scan.getStartingAngle() != startingAngle
+                || scan.getAngularResolution() != angularResolution) {
+            startLearning(scan); // A new grid, the background no longer matches
+        }
+
+        if (learnedScans < learningScans) {
+            learn(scan);
+            return;
+        }
+
+        int[] distances = scan.getDistances();
+        AngleTable angles = scan.getAngleTable();
+
+        int foregroundPoints = 0;
+        double scanMinX = Double.MAX_VALUE;
+        double scanMaxX = -Double.MAX_VALUE;
+        double scanMaxHeight = 0;
+        double area = 0;
+
+        boolean isPreviousForeground = false;
+        double previousX = 0;
+        double previousHeight = 0;
+
+        for (int i = 0; i < numberOfPoints; i++) {
+            int distance = distances[i];
+
+            // The height above the background, measured along the vertical
+            double height = distance != 0 && background[i] != 0 ? (background[i] - distance) * angles.sin(i) : 0;
+
+            if (height < minHeight) {
+                isPreviousForeground = false;
+                continue;
+            }
+
+            double x = distance * angles.cos(i);
+            foregroundPoints++;
+            scanMinX = Math.min(scanMinX, x);
+            scanMaxX = Math.max(scanMaxX, x);
+            scanMaxHeight = Math.max(scanMaxHeight, height);
+
+            if (isPreviousForeground) {
+                area += (height + previousHeight) / 2 * Math.abs(x - previousX); // Trapezoid between two beams
+            }
+
+            isPreviousForeground = true;
+            previousX = x;
+            previousHeight = height;
+        }
+
+        if (foregroundPoints >= minPoints) {
+            if (!isInObject) {
+                isInObject = true;
+                startTimestamp = scan.getTimestamp();
+                length = 0;
+                minX = scanMinX;
+                maxX = scanMaxX;
+                maxHeight = 0;
+                volume = 0;
+                objectScans = 0;
+                objectPoints = 0;
+            }
+
+            // Every scan stands for the distance the conveyor moved since the previous one
+            endTimestamp = scan.getTimestamp();
+            length += step;
+            volume += area * step;
+            minX = Math.min(minX, scanMinX);
+            maxX = Math.max(maxX, scanMaxX);
+            maxHeight = Math.max(maxHeight, scanMaxHeight);
+            objectScans++;
+            objectPoints += foregroundPoints;
+            emptyScans = 0;
+        } else if (isInObject && ++emptyScans >= gapScans) {
+            isInObject = false;
+            listener.onObject(new MeasuredObject(numberOfObjects++, startTimestamp, endTimestamp,
+                    length, maxX - minX, maxHeight, volume, objectScans, objectPoints));
+        }
+    }
+
+    private void startLearning(Scan scan) {
+        startingAngle = scan.getStartingAngle();
+        angularResolution = scan.getAngularResolution();
+        numberOfPoints = scan.getNumberOfPoints();
+
+        if (background.length < numberOfPoints) {
+            backgroundSum = new long[numberOfPoints];
+            backgroundCount = new int[numberOfPoints];
+            background = new double[numberOfPoints];
+        }
+
+        Arrays.fill(backgroundSum, 0);
+        Arrays.fill(backgroundCount, 0);
+        learnedScans = 0;
+        isInObject = false;
+    }
+
+    private void learn(Scan scan) {
+        int[] distances = scan.getDistances();
+
+        for (int i = 0; i < numberOfPoints; i++) {
+            if (distances[i] != 0) {
+                backgroundSum[i] += distances[i];
+                backgroundCount[i]++;
+            }
+        }
+
+        if (++learnedScans < learningScans) {
+            return;
+        }
+
+        // Beams without an echo in most of the scans have no background, nothing is measured on them
+        for (int i = 0; i < numberOfPoints; i++) {
+            background[i] = 2 * backgroundCount[i] > learnedScans ? (double) backgroundSum[i] / backgroundCount[i] : 0;
+        }
+    }
+}
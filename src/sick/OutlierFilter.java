@@ -0,0 +1,56 @@
+package sick;
+
+/**
+ * Removes isolated points: a valid point is invalidated if fewer than the required number of valid beams
+ * within the search radius measure a distance close to its own.
+ * Catches single returns from dust, edges and reflections that a median of a few beams would keep.
+ */
+public class OutlierFilter implements ScanFilter {
+
+    private final int radius;
+    private final int maxDifference;
+    private final int minNeighbours;
+    private int[] input = new int[0];
+
+    /**
+     * @param radius        The number of beams searched on each side of a point.
+     * @param maxDifference The largest difference in mm to a neighbour that still supports a point.
+     * @param minNeighbours The number of supporting neighbours a point needs to be kept, at most {@code 2 * radius}.
+     */
+    public OutlierFilter(int radius, int maxDifference, int minNeighbours) {
+        if (radius < 1 || minNeighbours < 1 || minNeighbours > 2 * radius) {
+            throw new IllegalArgumentException("Invalid radius " + radius + " or neighbours " + minNeighbours);
+        }
+        this.radius = radius;
+        this.maxDifference = maxDifference;
+        this.minNeighbours = minNeighbours;
+    }
+
+    @Override
+    public void filter(int[] distances, int numberOfPoints) {
+        if (input.length < numberOfPoints) {
+            input = new int[numberOfPoints];
+        }
+        System.arraycopy(distances, 0, input, 0, numberOfPoints);
+
+        for (int i = 0; i < numberOfPoints; i++) {
+            int distance = input[i];
+            if (distance == 0) {
+                continue;
+            }
+
+            int neighbours = 0;
+            int end = Math.min(i + radius, numberOfPoints - 1);
+
+            for (int j = Math.max(i - radius, 0); j <= end && neighbours < minNeighbours; j++) {
+                if (j != i && input[j] != 0 && Math.abs(input[j] - distance) <= maxDifference) {
+                    neighbours++;
+                }
+            }
+
+            if (neighbours < minNeighbours) {
+                distances[i] = 0;
+            }
+        }
+    }
+}
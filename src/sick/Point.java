@@ -17,6 +17,16 @@ public class Point {
         this.y = distance * Math.sin(angleRad);
     }
 
+    /**
+     * Creates a point using precomputed cosine and sine of its angle, see {@link AngleTable}.
+     */
+    Point(int distance, int angle, double cos, double sin) {
+        this.distance = distance;
+        this.angle = ((double) angle) / 10000;
+        this.x = distance * cos;
+        this.y = distance * sin;
+    }
+
     public void printInfo() {
         System.out.println("POINT");
         System.out.println("POLAR: (" + this.distance + "," + this.angle + ")");
@@ -0,0 +1,247 @@
+package sick;
+
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+
+/**
+ * Builds a 3D point cloud of the objects passing the scanner, one scan at a time, downsampled on a voxel grid.
+ * The x axis runs across the conveyor, the y axis along it and the z axis points up, as in the text output of
+ * {@link LMS400#saveData(String)}; the position along the conveyor comes from the scan spacing or the conveyor speed
+ * instead of the scan index.
+ * Every valid point is added to the voxel containing it, and each occupied voxel is reported as the centroid of its
+ * points, so memory and output grow with the scanned surface, not with the scan rate.
+ * <p>
+ * Voxels are kept in an open-addressing hash table keyed by the voxel indices packed into one {@code long},
+ * without an object per point or voxel.
+ */
+public class PointCloudBuilder implements ScanListener {
+
+    /**
+     * Receives the voxels of the cloud.
+     */
+    public interface VoxelConsumer {
+        /**
+         * @param x     The mean x of the points in the voxel in mm.
+         * @param y     The mean y of the points in the voxel in mm.
+         * @param z     The mean z of the points in the voxel in mm.
+         * @param count The number of points in the voxel.
+         */
+        void accept(double x, double y, double z, int count);
+    }
+
+    private static final int INDEX_BITS = 21;
+    private static final long INDEX_OFFSET = 1L << (INDEX_BITS - 1);
+    private static final long EMPTY = -1;
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    private final double voxelSize;
+    private final ConveyorAxis axis;
+
+    private long[] keys;
+    private double[] sumX;
+    private double[] sumY;
+    private double[] sumZ;
+    private int[] counts;
+    private int numberOfVoxels = 0;
+
+    private long addedPoints = 0;
+    private long outOfRangePoints = 0;
+
+    private PointCloudBuilder(double voxelSize, ConveyorAxis axis) {
+        this.voxelSize = voxelSize;
+        this.axis = axis;
+        allocate(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Creates a builder that places consecutive scans a fixed distance apart, for example one encoder step.
+     * Scans lost in between leave a gap if the telegrams carry a scan counter.
+     *
+     * @param voxelSize          The edge length of a voxel in mm.
+     * @param millimetersPerScan The distance the conveyor moves between two scans in mm.
+     * @return The builder.
+     */
+    public static PointCloudBuilder ofScanSpacing(double voxelSize, double millimetersPerScan) {
+        return new PointCloudBuilder(voxelSize, ConveyorAxis.ofScanSpacing(millimetersPerScan));
+    }
+
+    /**
+     * Creates a builder that places scans by their receive timestamps and a constant conveyor speed.
+     *
+     * @param voxelSize            The edge length of a voxel in mm.
+     * @param millimetersPerSecond The speed of the conveyor in mm/s.
+     * @return The builder.
+     */
+    public static PointCloudBuilder ofConveyorSpeed(double voxelSize, double millimetersPerSecond) {
+        return new PointCloudBuilder(voxelSize, ConveyorAxis.ofConveyorSpeed(millimetersPerSecond));
+    }
+
+    public double getVoxelSize() {
+        return voxelSize;
+    }
+
+    /**
+     * Adds the valid points of a scan. The first scan added is placed at y = 0.
+     *
+     * @param scan The decoded scan.
+     */
+    @Override
+    public synchronized void onScan(Scan scan) {
+        double y = axis.next(scan);
+        long iy = (long) Math.floor(y / voxelSize);
+
+        long[] validMask = scan.getValidMask();
+        int numberOfPoints = scan.getNumberOfPoints();
+
+        for (int word = 0; word < (numberOfPoints + 63) >>> 6; word++) {
+            long bits = validMask[word];
+
+            while (bits != 0) {
+                int i = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+
+                double x = scan.getX(i);
+                double z = -scan.getY(i);
+                add(x, y, z, (long) Math.floor(x / voxelSize), iy, (long) Math.floor(z / voxelSize));
+            }
+        }
+    }
+
+    private void add(double x, double y, double z, long ix, long iy, long iz) {
+        if (!isInRange(ix) || !isInRange(iy) || !isInRange(iz)) {
+            outOfRangePoints++;
+            return;
+        }
+
+        long key = ((ix + INDEX_OFFSET) << (2 * INDEX_BITS)) | ((iy + INDEX_OFFSET) << INDEX_BITS) | (iz + INDEX_OFFSET);
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            numberOfVoxels++;
+        }
+
+        sumX[slot] += x;
+        sumY[slot] += y;
+        sumZ[slot] += z;
+        counts[slot]++;
+        addedPoints++;
+
+        if (numberOfVoxels * 2 > keys.length) {
+            grow();
+        }
+    }
+
+    private static boolean isInRange(long index) {
+        return index >= -INDEX_OFFSET && index < INDEX_OFFSET;
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        sumX = new double[capacity];
+        sumY = new double[capacity];
+        sumZ = new double[capacity];
+        counts = new int[capacity];
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        double[] oldX = sumX;
+        double[] oldY = sumY;
+        double[] oldZ = sumZ;
+        int[] oldCounts = counts;
+
+        allocate(oldKeys.length * 2);
+        int mask = keys.length - 1;
+
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == EMPTY) {
+                continue;
+            }
+
+            int slot = hash(oldKeys[i]) & mask;
+            while (keys[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+
+            keys[slot] = oldKeys[i];
+            sumX[slot] = oldX[i];
+            sumY[slot] = oldY[i];
+            sumZ[slot] = oldZ[i];
+            counts[slot] = oldCounts[i];
+        }
+    }
+
+    /**
+     * @return The number of occupied voxels, which is the number of points of the downsampled cloud.
+     */
+    public synchronized int getNumberOfVoxels() {
+        return numberOfVoxels;
+    }
+
+    /**
+     * @return The number of points added, before downsampling.
+     */
+    public synchronized long getAddedPoints() {
+        return addedPoints;
+    }
+
+    /**
+     * @return The number of points skipped because they lie outside the range of the voxel grid.
+     */
+    public synchronized long getOutOfRangePoints() {
+        return outOfRangePoints;
+    }
+
+    /**
+     * Passes every occupied voxel to the consumer, in no particular order.
+     *
+     * @param consumer The consumer of the voxels.
+     */
+    public synchronized void forEach(VoxelConsumer consumer) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (keys[slot] != EMPTY) {
+                int count = counts[slot];
+                consumer.accept(sumX[slot] / count, sumY[slot] / count, sumZ[slot] / count, count);
+            }
+        }
+    }
+
+    /**
+     * Saves the downsampled cloud as text, one "x y z" line per voxel, like {@link LMS400#saveData(String)}.
+     *
+     * @param filePath The path of the file.
+     * @throws FileNotFoundException If the file cannot be created.
+     */
+    public synchronized void save(String filePath) throws FileNotFoundException {
+        try (PrintStream ps = new PrintStream(new FileOutputStream(filePath))) {
+            forEach((x, y, z, count) -> ps.println(x + " " + y + " " + z));
+        }
+    }
+
+    /**
+     * Removes all points. The next scan added is placed at y = 0 again.
+     */
+    public synchronized void clear() {
+        allocate(INITIAL_CAPACITY);
+        numberOfVoxels = 0;
+        axis.reset();
+        addedPoints = 0;
+        outOfRangePoints = 0;
+    }
+}
@@ -0,0 +1,270 @@
+package sick;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * A single decoded scan stored as primitive arrays.
+ * The record is reusable: decoding into it overwrites the previous content without allocating,
+ * as long as the number of points fits in its capacity.
+ * {@link Point} objects are created only on request as a view of the stored values.
+ */
+public class Scan {
+
+    private static final int DEFAULT_CAPACITY = 512;
+
+    private int startingAngle = 0;
+    private int angularResolution = 0;
+    private int numberOfPoints = 0;
+    private int scanFrequency = 0;
+    private long timestamp = 0;
+    private long sequenceNumber = -1;
+
+    private int[] distances;
+    private long[] validMask;
+    private int[] remissions = null;
+    private boolean hasRemission = false;
+    private AngleTable angleTable = null;
+
+    public Scan() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public Scan(int capacity) {
+        this.distances = new int[capacity];
+        this.validMask = new long[(capacity + 63) >>> 6];
+    }
+
+    /**
+     * @return The angle of the first point in 1/10000 degree.
+     */
+    public int getStartingAngle() {
+        return startingAngle;
+    }
+
+    /**
+     * @return The angle between consecutive points in 1/10000 degree.
+     */
+    public int getAngularResolution() {
+        return angularResolution;
+    }
+
+    public int getNumberOfPoints() {
+        return numberOfPoints;
+    }
+
+    /**
+     * @return The scanning frequency reported by the device in 1/100 Hz.
+     */
+    public int getScanFrequency() {
+        return scanFrequency;
+    }
+
+    /**
+     * @return The value of {@link System#nanoTime()} when the telegram of the scan was received.
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    void setTimestamp(long timestamp) {
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * The decoder sets the 16-bit scan counter of the telegram,
+     * which a {@link SequenceTracker} extends to a number that does not wrap around.
+     *
+     * @return The sequence number of the scan, or -1 if unknown.
+     */
+    public long getSequenceNumber() {
+        return sequenceNumber;
+    }
+
+    void setSequenceNumber(long sequenceNumber) {
+        this.sequenceNumber = sequenceNumber;
+    }
+
+    /**
+     * Gives direct access to the distance array. Only the first {@link #getNumberOfPoints()} values are valid.
+     *
+     * @return The distances in mm, 0 for points outside the measuring range.
+     */
+    public int[] getDistances() {
+        return distances;
+    }
+
+    /**
+     * Gives direct access to the bitset of valid points, filled by the decoder.
+     * Bit {@code i % 64} of word {@code i / 64} is set if point {@code i} is inside the measuring range.
+     *
+     * @return The bitset of valid points.
+     */
+    public long[] getValidMask() {
+        return validMask;
+    }
+
+    /**
+     * Marks every point with a non-zero distance as valid, for distances that were filtered before.
+     */
+    void updateValidMask() {
+        int words = (numberOfPoints + 63) >>> 6;
+        for (int word = 0; word < words; word++) {
+            long bits = 0;
+            int start = word << 6;
+            int end = Math.min(start + 64, numberOfPoints);
+
+            for (int i = start; i < end; i++) {
+                bits |= (long) (-distances[i] >>> 31) << i; // Without a branch, distances are never negative
+            }
+
+            validMask[word] = bits;
+        }
+    }
+
+    public boolean isValid(int index) {
+        return (validMask[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public int getNumberOfValidPoints() {
+        int count = 0;
+        for (int word = 0; word < (numberOfPoints + 63) >>> 6; word++) {
+            count += Long.bitCount(validMask[word]);
+        }
+        return count;
+    }
+
+    /**
+     * @return {@code true} if the remission of every point was decoded.
+     */
+    public boolean hasRemission() {
+        return hasRemission;
+    }
+
+    /**
+     * Gives direct access to the remission array. Only valid if {@link #hasRemission()} is {@code true}.
+     *
+     * @return The remissions, or {@code null} if remission was never decoded into this record.
+     */
+    public int[] getRemissions() {
+        return remissions;
+    }
+
+    public int getRemission(int index) {
+        return remissions[index];
+    }
+
+    /**
+     * Sets whether the scan carries remissions, allocating the remission array on first use.
+     * Must be called after {@link #setGrid}.
+     */
+    void setRemission(boolean hasRemission) {
+        if (hasRemission && (remissions == null || remissions.length < distances.length)) {
+            remissions = new int[distances.length];
+        }
+        this.hasRemission = hasRemission;
+    }
+
+    public int getDistance(int index) {
+        return distances[index];
+    }
+
+    /**
+     * @param index The index of the point.
+     * @return The angle of the point in 1/10000 degree.
+     */
+    public int getAngle(int index) {
+        return startingAngle + angularResolution * index;
+    }
+
+    public AngleTable getAngleTable() {
+        return angleTable;
+    }
+
+    /**
+     * @param index The index of the point.
+     * @return The Cartesian x coordinate of the point in mm.
+     */
+    public double getX(int index) {
+        return distances[index] * angleTable.cos(index);
+    }
+
+    /**
+     * @param index The index of the point.
+     * @return The Cartesian y coordinate of the point in mm.
+     */
+    public double getY(int index) {
+        return distances[index] * angleTable.sin(index);
+    }
+
+    /**
+     * Sets the angle grid and the number of points, growing the arrays if needed.
+     * The angle table is looked up only when the grid changes.
+     */
+    void setGrid(int startingAngle, int angularResolution, int numberOfPoints, int scanFrequency) {
+        if (numberOfPoints > distances.length) {
+            distances = new int[numberOfPoints];
+            validMask = new long[(numberOfPoints + 63) >>> 6];
+        }
+
+        if (angleTable == null
+                || angleTable.getStartingAngle() != startingAngle
+                || angleTable.getAngularResolution() != angularResolution
+                || angleTable.size() < numberOfPoints) {
+            angleTable = AngleTable.get(startingAngle, angularResolution, numberOfPoints);
+        }
+
+        this.startingAngle = startingAngle;
+        this.angularResolution = angularResolution;
+        this.numberOfPoints = numberOfPoints;
+        this.scanFrequency = scanFrequency;
+    }
+
+    public Point getPoint(int index) {
+        return new Point(distances[index], getAngle(index), angleTable.cos(index), angleTable.sin(index));
+    }
+
+    /**
+     * Creates a list of points viewing this scan.
+     *
+     * @return The points of the scan.
+     */
+    public ArrayList<Point> toPoints() {
+        ArrayList<Point> points = new ArrayList<>(numberOfPoints);
+        for (int i = 0; i < numberOfPoints; i++) {
+            points.add(getPoint(i));
+        }
+        return points;
+    }
+
+    /**
+     * Copies another scan into this one.
+     *
+     * @param other The scan to copy from.
+     */
+    public void copyFrom(Scan other) {
+        setGrid(other.startingAngle, other.angularResolution, other.numberOfPoints, other.scanFrequency);
+        System.arraycopy(other.distances, 0, distances, 0, other.numberOfPoints);
+        System.arraycopy(other.validMask, 0, validMask, 0, (other.numberOfPoints + 63) >>> 6);
+        setRemission(other.hasRemission);
+        if (other.hasRemission) {
+            System.arraycopy(other.remissions, 0, remissions, 0, other.numberOfPoints);
+        }
+        timestamp = other.timestamp;
+        sequenceNumber = other.sequenceNumber;
+    }
+
+    public Scan copy() {
+        Scan scan = new Scan(numberOfPoints);
+        scan.copyFrom(this);
+        return scan;
+    }
+
+    @Override
+    public String toString() {
+        return "Scan{startingAngle=" + startingAngle
+                + ", angularResolution=" + angularResolution
+                + ", numberOfPoints=" + numberOfPoints
+                + ", distances=" + Arrays.toString(Arrays.copyOf(distances, numberOfPoints)) + "}";
+    }
+}
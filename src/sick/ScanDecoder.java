@@ -0,0 +1,327 @@
+package sick;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * Decodes measurement telegrams into {@link Scan} records.
+ * The measurement telegram begins with the ASCII command header ("sSN LMDscandata ") followed by a binary block
+ * of little-endian values:
+ * format (2 bytes), distance scaling (4), starting angle (4), angular resolution (2), number of points (2),
+ * scanning frequency (2), remission scaling (2), remission start and end values (2 + 2), the distances (2 each),
+ * depending on the format the remissions (1 or 2 each), and the scan counter (2), which wraps around at 65536.
+ * Telegrams without the scan counter are decoded with a sequence number of -1.
+ */
+public class ScanDecoder {
+
+    public static final int FORMAT_DISTANCE = 0x20;
+    public static final int FORMAT_REMISSION_8 = 0x21;
+    public static final int FORMAT_REMISSION_16 = 0x22;
+
+    static final int FORMAT_OFFSET = 0;
+    static final int STARTING_ANGLE_OFFSET = 6;
+    static final int ANGULAR_RESOLUTION_OFFSET = 10;
+    static final int NUMBER_OF_POINTS_OFFSET = 12;
+    static final int SCAN_FREQUENCY_OFFSET = 14;
+    static final int DISTANCES_OFFSET = 22;
+    static final int SCAN_COUNTER_LENGTH = 2;
+
+    private static final int MAX_HEADER_LENGTH = 32;
+    private static final int PARALLEL_THRESHOLD = 64;
+
+    private static final VarHandle SHORT_LE = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    public static final int DEFAULT_MIN_DISTANCE = 700;
+    public static final int DEFAULT_MAX_DISTANCE = 3000;
+
+    private final int minDistance;
+    private final int maxDistance;
+    private final boolean isRemissionEnabled;
+
+    public ScanDecoder() {
+        this(DEFAULT_MIN_DISTANCE, DEFAULT_MAX_DISTANCE, false);
+    }
+
+    /**
+     * @param minDistance The shortest valid distance in mm.
+     * @param maxDistance The longest valid distance in mm.
+     */
+    public ScanDecoder(int minDistance, int maxDistance) {
+        this(minDistance, maxDistance, false);
+    }
+
+    /**
+     * @param minDistance        The shortest valid distance in mm.
+     * @param maxDistance        The longest valid distance in mm.
+     * @param isRemissionEnabled Whether remissions present in the telegram are decoded.
+     */
+    public ScanDecoder(int minDistance, int maxDistance, boolean isRemissionEnabled) {
+        this.minDistance = minDistance;
+        this.maxDistance = maxDistance;
+        this.isRemissionEnabled = isRemissionEnabled;
+    }
+
+    public boolean isRemissionEnabled() {
+        return isRemissionEnabled;
+    }
+
+    public int getMinDistance() {
+        return minDistance;
+    }
+
+    public int getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * Decodes a measurement telegram into the given scan record.
+     *
+     * @param frame The received telegram from the device.
+     * @param scan  The scan record to fill.
+     * @return {@code true} if the telegram was decoded, {@code false} if it is not a measurement telegram.
+     */
+    public boolean decode(Frame frame, Scan scan) {
+        byte[] receivedData = frame.getData();
+        int offset = headerLength(frame);
+
+        if (offset + DISTANCES_OFFSET > frame.getLength()) {
+            return false; // Too short for a measurement telegram
+        }
+
+        int format = extractShort(receivedData, offset + FORMAT_OFFSET);
+        int startingAngle = extractInt(receivedData, offset + STARTING_ANGLE_OFFSET);
+        int angularResolution = extractShort(receivedData, offset + ANGULAR_RESOLUTION_OFFSET);
+        int numberOfPoints = extractShort(receivedData, offset + NUMBER_OF_POINTS_OFFSET);
+        int scanFrequency = extractShort(receivedData, offset + SCAN_FREQUENCY_OFFSET);
+
+        int currentIndex = offset + DISTANCES_OFFSET;
+
+        int remissionBytes = remissionBytes(format);
+
+        if (currentIndex + (2 + remissionBytes) * numberOfPoints > frame.getLength()) {
+            return false; // Truncated measurement telegram
+        }
+
+        scan.setGrid(startingAngle, angularResolution, numberOfPoints, scanFrequency);
+        scan.setTimestamp(frame.getTimestamp());
+        scan.setSequenceNumber(extractScanCounter(frame, currentIndex + (2 + remissionBytes) * numberOfPoints));
+
+        if (isRemissionEnabled && remissionBytes > 0) {
+            scan.setRemission(true);
+            extractDistancesAndRemissions(receivedData, currentIndex, currentIndex + 2 * numberOfPoints,
+                    remissionBytes, scan.getDistances(), scan.getRemissions(), scan.getValidMask(),
+                    numberOfPoints, minDistance, maxDistance);
+        } else {
+            scan.setRemission(false);
+            extractDistances(receivedData, currentIndex, scan.getDistances(), scan.getValidMask(),
+                    numberOfPoints, minDistance, maxDistance);
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads the scan counter of a measurement telegram without decoding the scan.
+     *
+     * @param frame The received telegram from the device.
+     * @return The scan counter, or -1 if the telegram is too short to carry one.
+     */
+    static int scanCounter(Frame frame) {
+        int offset = headerLength(frame);
+
+        if (offset + DISTANCES_OFFSET > frame.getLength()) {
+            return -1;
+        }
+
+        byte[] receivedData = frame.getData();
+        int format = extractShort(receivedData, offset + FORMAT_OFFSET);
+        int numberOfPoints = extractShort(receivedData, offset + NUMBER_OF_POINTS_OFFSET);
+        return extractScanCounter(frame, offset + DISTANCES_OFFSET + (2 + remissionBytes(format)) * numberOfPoints);
+    }
+
+    private static int extractScanCounter(Frame frame, int currentIndex) {
+        if (currentIndex + SCAN_COUNTER_LENGTH > frame.getLength()) {
+            return -1;
+        }
+        return extractShort(frame.getData(), currentIndex);
+    }
+
+    /**
+     * @param format The output format of the telegram.
+     * @return The number of bytes of each remission value, 0 if the format has no remissions.
+     */
+    static int remissionBytes(int format) {
+        switch (format) {
+            case FORMAT_REMISSION_8:
+                return 1;
+            case FORMAT_REMISSION_16:
+                return 2;
+            default:
+                return 0;
+        }
+    }
+
+    /**
+     * Extracts the block of little-endian distances, sets the distances outside the measuring range to 0
+     * and marks the points inside it in a bitset.
+     * Reads every distance with a single 16-bit load and builds the bitset one 64-point word at a time.
+     *
+     * @param receivedData The received data from the device.
+     * @param currentIndex The index of the first distance in the received data.
+     * @param distances    The array to fill with distances in mm.
+     * @param validMask    The bitset to fill, bit {@code i % 64} of word {@code i / 64} is set for a valid point.
+     * @param length       The number of distances.
+     * @param minDistance  The shortest valid distance in mm.
+     * @param maxDistance  The longest valid distance in mm.
+     */
+    static void extractDistances(byte[] receivedData, int currentIndex, int[] distances, long[] validMask,
+                                 int length, int minDistance, int maxDistance) {
+        int words = (length + 63) >>> 6;
+        for (int word = 0; word < words; word++) {
+            long bits = 0;
+            int start = word << 6;
+            int end = Math.min(start + 64, length);
+
+            for (int i = start; i < end; i++) {
+                int distance = (short) SHORT_LE.get(receivedData, currentIndex + 2 * i) & 0xFFFF;
+
+                if (distance > maxDistance || distance < minDistance) {
+                    distances[i] = 0;
+                } else {
+                    distances[i] = distance;
+                    bits |= 1L << i;
+                }
+            }
+
+            validMask[word] = bits;
+        }
+    }
+
+    /**
+     * Extracts the distances like {@link #extractDistances} and the remissions of the same points in one pass.
+     *
+     * @param receivedData   The received data from the device.
+     * @param currentIndex   The index of the first distance in the received data.
+     * @param remissionIndex The index of the first remission in the received data.
+     * @param remissionBytes The number of bytes of each remission value, 1 or 2.
+     * @param distances      The array to fill with distances in mm.
+     * @param remissions     The array to fill with remissions.
+     * @param validMask      The bitset to fill, bit {@code i % 64} of word {@code i / 64} is set for a valid point.
+     * @param length         The number of points.
+     * @param minDistance    The shortest valid distance in mm.
+     * @param maxDistance    The longest valid distance in mm.
+     */
+    static void extractDistancesAndRemissions(byte[] receivedData, int currentIndex, int remissionIndex,
+                                              int remissionBytes, int[] distances, int[] remissions,
+                                              long[] validMask, int length, int minDistance, int maxDistance) {
+        int words = (length + 63) >>> 6;
+        for (int word = 0; word < words; word++) {
+            long bits = 0;
+            int start = word << 6;
+            int end = Math.min(start + 64, length);
+
+            for (int i = start; i < end; i++) {
+                int distance = (short) SHORT_LE.get(receivedData, currentIndex + 2 * i) & 0xFFFF;
+
+                remissions[i] = remissionBytes == 1
+                        ? receivedData[remissionIndex + i] & 0xFF
+                        : (short) SHORT_LE.get(receivedData, remissionIndex + 2 * i) & 0xFFFF;
+
+                if (distance > maxDistance || distance < minDistance) {
+                    distances[i] = 0;
+                } else {
+                    distances[i] = distance;
+                    bits |= 1L << i;
+                }
+            }
+
+            validMask[word] = bits;
+        }
+    }
+
+    /**
+     * Decodes many telegrams at once, in parallel on the common ForkJoin pool for large batches.
+     * Every telegram is decoded into the slot with the same index, so the order of the scans is kept.
+     *
+     * @param frames The received telegrams.
+     * @param scans  The slots for the decoded scans, at least as long as the list of telegrams.
+     *               Empty slots are filled with new records; slots of telegrams that are not
+     *               measurement telegrams are set to {@code null}.
+     * @return The number of decoded scans.
+     */
+    public int decodeAll(List<Frame> frames, Scan[] scans) {
+        IntStream indices = IntStream.range(0, frames.size());
+
+        if (frames.size() >= PARALLEL_THRESHOLD) {
+            indices = indices.parallel();
+        }
+
+        // Every index must be visited, so count through map and sum rather than a count() that may skip the work
+        return indices.map(i -> {
+            Scan scan = scans[i] != null ? scans[i] : new Scan();
+            boolean isDecoded = decode(frames.get(i), scan);
+            scans[i] = isDecoded ? scan : null;
+            return isDecoded ? 1 : 0;
+        }).sum();
+    }
+
+    /**
+     * Checks whether a telegram carries measured values rather than an answer to a command.
+     *
+     * @param frame The received telegram from the device.
+     * @return {@code true} if the telegram is a measurement telegram.
+     */
+    public static boolean isMeasurement(Frame frame) {
+        return frame.startsWith("sSN") || (frame.getLength() > 0 && frame.getData()[0] != 's');
+    }
+
+    /**
+     * Finds the length of the ASCII command header preceding the binary block.
+     *
+     * @param frame The received telegram from the device.
+     * @return The index of the first byte after the header, or 0 if there is no header.
+     */
+    static int headerLength(Frame frame) {
+        byte[] receivedData = frame.getData();
+
+        if (frame.getLength() == 0 || receivedData[0] != 's') {
+            return 0;
+        }
+
+        int spaces = 0;
+        for (int i = 0; i < Math.min(frame.getLength(), MAX_HEADER_LENGTH); i++) {
+            if (receivedData[i] == ' ' && ++spaces == 2) {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Extracts a little-endian 32-bit value from the received data.
+     *
+     * @param receivedData The received data from the device.
+     * @param currentIndex The current index in the received data.
+     * @return The extracted value.
+     */
+    static int extractInt(byte[] receivedData, int currentIndex) {
+        return (receivedData[currentIndex] & 0xFF)
+                | (receivedData[currentIndex + 1] & 0xFF) << 8
+                | (receivedData[currentIndex + 2] & 0xFF) << 16
+                | (receivedData[currentIndex + 3] & 0xFF) << 24;
+    }
+
+    /**
+     * Extracts a little-endian unsigned 16-bit value from the received data.
+     *
+     * @param receivedData The received data from the device.
+     * @param currentIndex The current index in the received data.
+     * @return The extracted value.
+     */
+    static int extractShort(byte[] receivedData, int currentIndex) {
+        return (receivedData[currentIndex] & 0xFF) | (receivedData[currentIndex + 1] & 0xFF) << 8;
+    }
+}
@@ -0,0 +1,121 @@
+package sick;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Layout of the binary scan file written by {@link ScanFileWriter} and read by {@link ScanFileReader}.
+ * All values are little-endian.
+ *
+ * <pre>
+ * Header (64 bytes):
+ *   magic "LMSS" (4), version (2), flags (2, bit 0 set if records hold remissions),
+ *   starting angle (4), angular resolution (4), number of points (4), record size (4),
+ *   start time in ms since the epoch (8), start time as {@link System#nanoTime()} (8),
+ *   number of scans (8), scanning frequency in 1/100 Hz (4, 0 if unknown), reserved (12)
+ * Record (record size bytes), one per scan:
+ *   timestamp as {@link System#nanoTime()} (8), sequence number (8, -1 if unknown),
+ *   distances in mm (2 each), remissions if flagged (2 each)
+ * </pre>
+ * Version 1 records have no sequence number.
+ */
+final class ScanFileFormat {
+
+    static final int MAGIC = 0x53534D4C; // "LMSS" read as a little-endian int
+    static final short VERSION = 2;
+    static final short VERSION_WITHOUT_SEQUENCE_NUMBER = 1;
+
+    static final int HEADER_LENGTH = 64;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int FLAGS_OFFSET = 6;
+    static final int STARTING_ANGLE_OFFSET = 8;
+    static final int ANGULAR_RESOLUTION_OFFSET = 12;
+    static final int NUMBER_OF_POINTS_OFFSET = 16;
+    static final int RECORD_SIZE_OFFSET = 20;
+    static final int START_TIME_OFFSET = 24;
+    static final int START_NANO_TIME_OFFSET = 32;
+    static final int NUMBER_OF_SCANS_OFFSET = 40;
+    static final int SCAN_FREQUENCY_OFFSET = 48;
+
+    static final int TIMESTAMP_LENGTH = 8;
+    static final int SEQUENCE_NUMBER_LENGTH = 8;
+
+    static final short FLAG_REMISSION = 1;
+
+    private ScanFileFormat() {
+    }
+
+    static int recordSize(int numberOfPoints, boolean hasRemission) {
+        return TIMESTAMP_LENGTH + SEQUENCE_NUMBER_LENGTH + (hasRemission ? 4 : 2) * numberOfPoints;
+    }
+
+    static int recordSize(Scan scan) {
+        return recordSize(scan.getNumberOfPoints(), scan.hasRemission());
+    }
+
+    /**
+     * Puts the header for scans on the grid of the given scan at the current position of the buffer.
+     */
+    static void putHeader(ByteBuffer buffer, Scan scan) {
+        int start = buffer.position();
+
+        buffer.putInt(start + MAGIC_OFFSET, MAGIC);
+        buffer.putShort(start + VERSION_OFFSET, VERSION);
+        buffer.putShort(start + FLAGS_OFFSET, scan.hasRemission() ? FLAG_REMISSION : 0);
+        buffer.putInt(start + STARTING_ANGLE_OFFSET, scan.getStartingAngle());
+        buffer.putInt(start + ANGULAR_RESOLUTION_OFFSET, scan.getAngularResolution());
+        buffer.putInt(start + NUMBER_OF_POINTS_OFFSET, scan.getNumberOfPoints());
+        buffer.putInt(start + RECORD_SIZE_OFFSET, recordSize(scan));
+        buffer.putLong(start + START_TIME_OFFSET, System.currentTimeMillis());
+        buffer.putLong(start + START_NANO_TIME_OFFSET, System.nanoTime());
+        buffer.putLong(start + NUMBER_OF_SCANS_OFFSET, 0);
+        buffer.putInt(start + SCAN_FREQUENCY_OFFSET, scan.getScanFrequency());
+
+        for (int i = SCAN_FREQUENCY_OFFSET + 4; i < HEADER_LENGTH; i++) {
+            buffer.put(start + i, (byte) 0);
+        }
+
+        buffer.position(start + HEADER_LENGTH);
+    }
+
+    /**
+     * Puts the record of a scan at the current position of the buffer.
+     */
+    static void putRecord(ByteBuffer buffer, Scan scan) {
+        buffer.putLong(scan.getTimestamp());
+        buffer.putLong(scan.getSequenceNumber());
+
+        int[] distances = scan.getDistances();
+        for (int i = 0; i < scan.getNumberOfPoints(); i++) {
+            buffer.putShort((short) distances[i]);
+        }
+
+        if (scan.hasRemission()) {
+            int[] remissions = scan.getRemissions();
+            for (int i = 0; i < scan.getNumberOfPoints(); i++) {
+                buffer.putShort((short) remissions[i]);
+            }
+        }
+    }
+
+    /**
+     * Stores the number of scans in the header of a finished file.
+     */
+    static void writeNumberOfScans(FileChannel channel, long numberOfScans) throws IOException {
+        ByteBuffer count = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+        count.putLong(0, numberOfScans);
+        channel.write(count, NUMBER_OF_SCANS_OFFSET);
+    }
+
+    static boolean hasSameLayout(Scan scan, int startingAngle, int angularResolution, int numberOfPoints,
+                                 boolean hasRemission) {
+        return scan.getStartingAngle() == startingAngle
+                && scan.getAngularResolution() == angularResolution
+                && scan.getNumberOfPoints() == numberOfPoints
+                && scan.hasRemission() == hasRemission;
+    }
+}
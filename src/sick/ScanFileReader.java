@@ -0,0 +1,202 @@
+package sick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static sick.ScanFileFormat.*;
+
+/**
+ * Reads a binary scan file, see {@link ScanFileFormat}, through memory mapping.
+ * Any scan can be read directly by its index without parsing the rest of the file.
+ * Files larger than a single mapping are mapped in segments holding a whole number of records.
+ */
+public class ScanFileReader implements Closeable {
+
+    private static final long MAX_SEGMENT_SIZE = Integer.MAX_VALUE;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] segments;
+
+    private final int startingAngle;
+    private final int angularResolution;
+    private final int numberOfPoints;
+    private final int scanFrequency;
+    private final boolean hasSequenceNumbers;
+    private final int distancesOffset;
+    private final boolean hasRemission;
+    private final int recordSize;
+    private final int recordsPerSegment;
+    private final long startTime;
+    private final long startNanoTime;
+    private final long numberOfScans;
+
+    public ScanFileReader(Path path) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+
+        try {
+            if (channel.size() < HEADER_LENGTH) {
+                throw new IOException("Not a scan file: " + path);
+            }
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_LENGTH);
+            header.order(ByteOrder.LITTLE_ENDIAN);
+
+            if (header.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Not a scan file: " + path);
+            }
+
+            short version = header.getShort(VERSION_OFFSET);
+            if (version != VERSION && version != VERSION_WITHOUT_SEQUENCE_NUMBER) {
+                throw new IOException("Unsupported scan file version: " + version);
+            }
+
+            this.startingAngle = header.getInt(STARTING_ANGLE_OFFSET);
+            this.angularResolution = header.getInt(ANGULAR_RESOLUTION_OFFSET);
+            this.numberOfPoints = header.getInt(NUMBER_OF_POINTS_OFFSET);
+            this.scanFrequency = header.getInt(SCAN_FREQUENCY_OFFSET);
+            this.hasSequenceNumbers = version != VERSION_WITHOUT_SEQUENCE_NUMBER;
+            this.distancesOffset = TIMESTAMP_LENGTH + (hasSequenceNumbers ? SEQUENCE_NUMBER_LENGTH : 0);
+            this.hasRemission = (header.getShort(FLAGS_OFFSET) & FLAG_REMISSION) != 0;
+            this.recordSize = header.getInt(RECORD_SIZE_OFFSET);
+
+            // The number of points of a telegram is a 16-bit value, so the minimum record size cannot overflow
+            if (numberOfPoints < 0 || numberOfPoints > 0xFFFF
+                    || recordSize < distancesOffset + (hasRemission ? 4 : 2) * numberOfPoints) {
+                throw new IOException("Corrupted scan file header: " + path);
+            }
+
+            this.startTime = header.getLong(START_TIME_OFFSET);
+            this.startNanoTime = header.getLong(START_NANO_TIME_OFFSET);
+
+            // Count the records present rather than trusting the header, so an unfinished capture stays readable
+            this.numberOfScans = (channel.size() - HEADER_LENGTH) / recordSize;
+            this.recordsPerSegment = (int) (MAX_SEGMENT_SIZE / recordSize);
+
+            int numberOfSegments = (int) ((numberOfScans + recordsPerSegment - 1) / recordsPerSegment);
+            this.segments = new MappedByteBuffer[numberOfSegments];
+
+            for (int i = 0; i < numberOfSegments; i++) {
+                long first = (long) i * recordsPerSegment;
+                long count = Math.min(recordsPerSegment, numberOfScans - first);
+                segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_LENGTH + first * recordSize, count * recordSize);
+                segments[i].order(ByteOrder.LITTLE_ENDIAN);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getNumberOfScans() {
+        return numberOfScans;
+    }
+
+    public int getStartingAngle() {
+        return startingAngle;
+    }
+
+    public int getAngularResolution() {
+        return angularResolution;
+    }
+
+    public int getNumberOfPoints() {
+        return numberOfPoints;
+    }
+
+    public boolean hasRemission() {
+        return hasRemission;
+    }
+
+    /**
+     * @return The scanning frequency in 1/100 Hz, 0 if the file does not record it.
+     */
+    public int getScanFrequency() {
+        return scanFrequency;
+    }
+
+    /**
+     * @param index The index of the scan.
+     * @return The sequence number of the scan, -1 if unknown or not recorded in the file.
+     */
+    public long getSequenceNumber(long index) {
+        return hasSequenceNumbers ? segment(index).getLong(offset(index) + TIMESTAMP_LENGTH) : -1;
+    }
+
+    /**
+     * @return The wall-clock time of the start of the capture in ms since the epoch.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * Converts the timestamp of a scan to wall-clock time.
+     *
+     * @param index The index of the scan.
+     * @return The time the scan was received in ms since the epoch.
+     */
+    public long getTime(long index) {
+        return startTime + (getTimestamp(index) - startNanoTime) / 1_000_000;
+    }
+
+    public long getTimestamp(long index) {
+        return segment(index).getLong(offset(index));
+    }
+
+    public int getDistance(long index, int point) {
+        return segment(index).getShort(offset(index) + distancesOffset + 2 * point) & 0xFFFF;
+    }
+
+    /**
+     * Reads a scan into the given record.
+     *
+     * @param index The index of the scan.
+     * @param scan  The scan record to fill.
+     */
+    public void read(long index, Scan scan) {
+        MappedByteBuffer segment = segment(index);
+        int offset = offset(index);
+
+        scan.setGrid(startingAngle, angularResolution, numberOfPoints, scanFrequency);
+        scan.setTimestamp(segment.getLong(offset));
+        scan.setSequenceNumber(hasSequenceNumbers ? segment.getLong(offset + TIMESTAMP_LENGTH) : -1);
+
+        int[] distances = scan.getDistances();
+        offset += distancesOffset;
+        for (int i = 0; i < numberOfPoints; i++) {
+            distances[i] = segment.getShort(offset + 2 * i) & 0xFFFF;
+        }
+        scan.updateValidMask();
+
+        scan.setRemission(hasRemission);
+        if (hasRemission) {
+            int[] remissions = scan.getRemissions();
+            offset += 2 * numberOfPoints;
+            for (int i = 0; i < numberOfPoints; i++) {
+                remissions[i] = segment.getShort(offset + 2 * i) & 0xFFFF;
+            }
+        }
+    }
+
+    private MappedByteBuffer segment(long index) {
+        if (index < 0 || index >= numberOfScans) {
+            throw new IndexOutOfBoundsException("Scan " + index + " of " + numberOfScans);
+        }
+        return segments[(int) (index / recordsPerSegment)];
+    }
+
+    private int offset(long index) {
+        return (int) (index % recordsPerSegment) * recordSize;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
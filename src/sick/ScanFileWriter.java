@@ -0,0 +1,122 @@
+package sick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static sick.ScanFileFormat.*;
+
+/**
+ * Writes scans to a binary scan file, see {@link ScanFileFormat}.
+ * Records are collected in a large direct buffer and written to the file channel when it is full.
+ * The header is written with the angle grid of the first scan; every following scan must use the same grid
+ * and either all or none of the scans must carry remissions.
+ */
+public class ScanFileWriter implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+
+    private int startingAngle;
+    private int angularResolution;
+    private int numberOfPoints = -1;
+    private boolean hasRemission;
+    private long numberOfScans = 0;
+
+    public ScanFileWriter(Path path) throws IOException {
+        this(path, DEFAULT_BUFFER_SIZE);
+    }
+
+    public ScanFileWriter(Path path, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Appends a scan to the file.
+     *
+     * @param scan The scan to write.
+     * @throws IOException If writing fails or the scan does not match the angle grid of the file.
+     */
+    public void write(Scan scan) throws IOException {
+        if (numberOfPoints < 0) {
+            writeHeader(scan);
+        } else if (!hasSameLayout(scan, startingAngle, angularResolution, numberOfPoints, hasRemission)) {
+            throw new IOException("Scan does not match the angle grid or remission of the file");
+        }
+
+        if (buffer.remaining() < recordSize(scan)) {
+            flush();
+        }
+
+        putRecord(buffer, scan);
+        numberOfScans++;
+    }
+
+    public long getNumberOfScans() {
+        return numberOfScans;
+    }
+
+    /**
+     * @return The number of bytes written to the file so far, including buffered records.
+     */
+    public long size() throws IOException {
+        return channel.position() + buffer.position();
+    }
+
+    private void writeHeader(Scan scan) throws IOException {
+        startingAngle = scan.getStartingAngle();
+        angularResolution = scan.getAngularResolution();
+        numberOfPoints = scan.getNumberOfPoints();
+        hasRemission = scan.hasRemission();
+
+        if (buffer.capacity() < HEADER_LENGTH + recordSize(scan)) {
+            throw new IOException("Buffer too small for a single record");
+        }
+
+        putHeader(buffer, scan);
+    }
+
+    /**
+     * Writes the buffered records to the file channel.
+     *
+     * @throws IOException If writing fails.
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes the remaining records, stores the number of scans in the header and closes the file.
+     * Without any scan, the file holds only a header with an empty grid.
+     *
+     * @throws IOException If writing fails.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (numberOfPoints < 0) {
+                writeHeader(new Scan()); // An empty capture is still a valid file
+            }
+
+            flush();
+
+            if (numberOfScans > 0) {
+                writeNumberOfScans(channel, numberOfScans);
+            }
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package sick;
+
+/**
+ * A stage of a {@link ScanFilterChain}, filtering the distances of every scan in place on the decoder thread.
+ * Points are invalidated by setting their distance to 0; the chain updates the valid mask of the scan afterwards.
+ * Filters keep their working memory between scans and must not allocate once it is sized for the scan.
+ */
+public interface ScanFilter {
+
+    /**
+     * Filters the distances of one scan.
+     *
+     * @param distances      The distances in mm, 0 for invalid points.
+     * @param numberOfPoints The number of points of the scan.
+     */
+    void filter(int[] distances, int numberOfPoints);
+
+    /**
+     * Forgets the scans seen before, for filters that keep state from scan to scan.
+     */
+    default void reset() {
+    }
+}
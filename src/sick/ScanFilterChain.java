@@ -0,0 +1,46 @@
+package sick;
+
+/**
+ * Applies a fixed sequence of {@link ScanFilter}s to a scan, then marks the points left with a distance as valid.
+ * The chain is not thread-safe: it is meant for the decoder thread, see {@link LMS400#setFilters(ScanFilter...)}.
+ */
+public class ScanFilterChain {
+
+    private final ScanFilter[] filters;
+
+    /**
+     * @param filters The filters, applied in the given order.
+     */
+    public ScanFilterChain(ScanFilter... filters) {
+        this.filters = filters.clone();
+    }
+
+    /**
+     * Filters the distances of a scan in place and updates its valid mask.
+     *
+     * @param scan The decoded scan.
+     */
+    public void apply(Scan scan) {
+        int[] distances = scan.getDistances();
+        int numberOfPoints = scan.getNumberOfPoints();
+
+        for (ScanFilter filter : filters) {
+            filter.filter(distances, numberOfPoints);
+        }
+
+        scan.updateValidMask();
+    }
+
+    /**
+     * Resets every filter, for example when the device starts a new series of scans.
+     */
+    public void reset() {
+        for (ScanFilter filter : filters) {
+            filter.reset();
+        }
+    }
+
+    public int getNumberOfFilters() {
+        return filters.length;
+    }
+}
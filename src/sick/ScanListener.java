@@ -0,0 +1,15 @@
+package sick;
+
+/**
+ * Receives every scan decoded while the device is scanning.
+ */
+public interface ScanListener {
+
+    /**
+     * Called on the decoder thread for every decoded scan.
+     * The scan record is reused for the next telegram, so it must be copied if it is kept after returning.
+     *
+     * @param scan The decoded scan.
+     */
+    void onScan(Scan scan);
+}
@@ -0,0 +1,72 @@
+package sick;
+
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes decoded scans to {@link Flow.Subscriber}s.
+ * Every subscriber gets its own bounded buffer and requests scans at its own pace.
+ * When a subscriber falls behind and its buffer is full, the scan is dropped for that subscriber
+ * instead of blocking the decoder thread, and the drop is counted.
+ */
+public class ScanPublisher implements Flow.Publisher<Scan>, ScanListener, AutoCloseable {
+
+    public static final int DEFAULT_BUFFER_CAPACITY = 256;
+
+    private final SubmissionPublisher<Scan> publisher;
+    private final AtomicLong dropped = new AtomicLong();
+
+    public ScanPublisher() {
+        this(DEFAULT_BUFFER_CAPACITY);
+    }
+
+    /**
+     * @param bufferCapacity The maximum number of scans buffered for each subscriber.
+     */
+    public ScanPublisher(int bufferCapacity) {
+        this.publisher = new SubmissionPublisher<>(ForkJoinPool.commonPool(), bufferCapacity);
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super Scan> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Offers a copy of the scan to every subscriber.
+     *
+     * @param scan The decoded scan.
+     */
+    @Override
+    public void onScan(Scan scan) {
+        if (!publisher.hasSubscribers()) {
+            return;
+        }
+
+        publisher.offer(scan.copy(), (subscriber, item) -> {
+            dropped.incrementAndGet();
+            return false; // Do not retry
+        });
+    }
+
+    /**
+     * @return The number of scans dropped because a subscriber did not keep up.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public int getNumberOfSubscribers() {
+        return publisher.getNumberOfSubscribers();
+    }
+
+    /**
+     * Completes every subscriber after the buffered scans are delivered.
+     */
+    @Override
+    public void close() {
+        publisher.close();
+    }
+}
@@ -0,0 +1,282 @@
+package sick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static sick.ScanFileFormat.*;
+
+/**
+ * Streams scans to binary scan files, see {@link ScanFileFormat}, while acquisition runs.
+ * Scans are encoded into one of two large buffers on the decoder thread; a dedicated writer thread
+ * writes the other buffer to disk, and the buffers are swapped when the current one is full.
+ * The decoder thread never waits for disk I/O: if both buffers are busy, the scan is dropped and counted.
+ * Files can be rotated when they reach a maximum size or age, so long captures use bounded heap.
+ * A change of the angle grid or of remission output always starts a new file.
+ */
+public class ScanRecorder implements ScanListener, Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 4 << 20;
+
+    private static final DateTimeFormatter FILE_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd_HHmmss_SSS");
+
+    /**
+     * A buffer of encoded records together with what the writer has to do with it.
+     */
+    private static class Block {
+        final ByteBuffer buffer;
+        Path path = null;        // Set if the block starts a new file
+        boolean endOfFile = false;
+        int numberOfScans = 0;
+
+        Block(int size) {
+            this.buffer = ByteBuffer.allocateDirect(size).order(ByteOrder.LITTLE_ENDIAN);
+        }
+    }
+
+    private static final Block END = new Block(0);
+
+    private final Path directory;
+    private final String prefix;
+    private final long maxFileSize;
+    private final long maxFileNanos;
+
+    private final BlockingQueue<Block> free = new ArrayBlockingQueue<>(2);
+    private final BlockingQueue<Block> full = new ArrayBlockingQueue<>(3);
+    private final Thread writerThread;
+
+    private final AtomicLong recordedScans = new AtomicLong();
+    private final AtomicLong droppedScans = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private volatile IOException error = null;
+
+    // Owned by the thread calling onScan
+    private Block front;
+    private boolean isFileOpen = false;
+    private int fileIndex = 0;
+    private long fileBytes = 0;
+    private long fileStartNanos = 0;
+    private int startingAngle;
+    private int angularResolution;
+    private int numberOfPoints;
+    private boolean hasRemission;
+
+    /**
+     * Creates a recorder writing a single file.
+     *
+     * @param directory The directory of the files.
+     * @param prefix    The prefix of the file names.
+     */
+    public ScanRecorder(Path directory, String prefix) {
+        this(directory, prefix, 0, 0, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param directory     The directory of the files.
+     * @param prefix        The prefix of the file names.
+     * @param maxFileSize   The size in bytes after which a new file is started, 0 for no limit.
+     * @param maxFileMillis The age in ms after which a new file is started, 0 for no limit.
+     * @param bufferSize    The size of each of the two buffers in bytes.
+     */
+    public ScanRecorder(Path directory, String prefix, long maxFileSize, long maxFileMillis, int bufferSize) {
+        this.directory = directory;
+        this.prefix = prefix;
+        this.maxFileSize = maxFileSize;
+        this.maxFileNanos = maxFileMillis * 1_000_000;
+
+        this.front = new Block(bufferSize);
+        this.free.add(new Block(bufferSize));
+
+        this.writerThread = new Thread(this::writeBlocks, "LMS400-recorder");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Encodes the scan into the current buffer. Called by a single thread, usually the decoder thread.
+     *
+     * @param scan The decoded scan.
+     */
+    @Override
+    public void onScan(Scan scan) {
+        int recordSize = recordSize(scan);
+
+        if (HEADER_LENGTH + recordSize > front.buffer.capacity()) {
+            droppedScans.incrementAndGet();
+            return;
+        }
+
+        if (isFileOpen && needsNewFile(scan, recordSize)) {
+            front.endOfFile = true;
+            isFileOpen = false;
+        }
+
+        // A buffer ending a file is never shared with the next one
+        int needed = isFileOpen ? recordSize : HEADER_LENGTH + recordSize;
+        if ((front.endOfFile || front.buffer.remaining() < needed) && !swap()) {
+            return;
+        }
+
+        if (!isFileOpen) {
+            startFile(scan);
+        }
+
+        putRecord(front.buffer, scan);
+        front.numberOfScans++;
+        fileBytes += recordSize;
+        recordedScans.incrementAndGet();
+    }
+
+    private boolean needsNewFile(Scan scan, int recordSize) {
+        return !hasSameLayout(scan, startingAngle, angularResolution, numberOfPoints, hasRemission)
+                || (maxFileSize > 0 && fileBytes + recordSize > maxFileSize)
+                || (maxFileNanos > 0 && scan.getTimestamp() - fileStartNanos >= maxFileNanos);
+    }
+
+    private void startFile(Scan scan) {
+        String time = LocalDateTime.now().format(FILE_TIME_FORMAT);
+        front.path = directory.resolve(prefix + "_" + time + "_" + fileIndex++ + ".lms");
+
+        putHeader(front.buffer, scan);
+
+        isFileOpen = true;
+        fileBytes = HEADER_LENGTH;
+        fileStartNanos = scan.getTimestamp();
+        startingAngle = scan.getStartingAngle();
+        angularResolution = scan.getAngularResolution();
+        numberOfPoints = scan.getNumberOfPoints();
+        hasRemission = scan.hasRemission();
+    }
+
+    /**
+     * Hands the current buffer to the writer thread and takes the free one.
+     *
+     * @return {@code true} if swapped, {@code false} if the writer still holds the other buffer
+     *         and the scan was dropped.
+     */
+    private boolean swap() {
+        Block next = free.poll();
+
+        if (next == null) {
+            droppedScans.incrementAndGet();
+            return false;
+        }
+
+        full.add(front);
+        front = next;
+        return true;
+    }
+
+    /**
+     * Writer loop. Writes full buffers to disk and returns them to the free queue.
+     */
+    private void writeBlocks() {
+        FileChannel channel = null;
+        long scansInFile = 0;
+
+        try {
+            while (true) {
+                Block block = full.take();
+
+                if (block == END) {
+                    break;
+                }
+
+                try {
+                    if (block.path != null) {
+                        channel = FileChannel.open(block.path, StandardOpenOption.CREATE,
+                                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                        scansInFile = 0;
+                    }
+
+                    if (channel != null) {
+                        block.buffer.flip();
+                        while (block.buffer.hasRemaining()) {
+                            writtenBytes.addAndGet(channel.write(block.buffer));
+                        }
+                        scansInFile += block.numberOfScans;
+
+                        if (block.endOfFile) {
+                            writeNumberOfScans(channel, scansInFile);
+                            channel.close();
+                            channel = null;
+                        }
+                    }
+                } catch (IOException e) {
+                    error = e;
+                    e.printStackTrace(); // Handle or log the exception
+                } finally {
+                    block.buffer.clear();
+                    block.path = null;
+                    block.endOfFile = false;
+                    block.numberOfScans = 0;
+                    free.add(block);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (channel != null) {
+                try {
+                    writeNumberOfScans(channel, scansInFile);
+                    channel.close();
+                } catch (IOException e) {
+                    e.printStackTrace(); // Handle or log the exception
+                }
+            }
+        }
+    }
+
+    public long getRecordedScans() {
+        return recordedScans.get();
+    }
+
+    /**
+     * @return The number of scans dropped because the writer did not keep up.
+     */
+    public long getDroppedScans() {
+        return droppedScans.get();
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    /**
+     * @return The last error of the writer thread, or {@code null} if writing succeeded.
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Writes the remaining scans and closes the current file.
+     * Must not be called concurrently with {@link #onScan(Scan)}.
+     */
+    @Override
+    public void close() throws IOException {
+        front.endOfFile = isFileOpen;
+        isFileOpen = false;
+        full.add(front);
+        full.add(END);
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (error != null) {
+            throw error;
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package sick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Bounded storage of scans outside the Java heap.
+ * Every scan occupies a fixed-size slot in direct buffers, which are allocated in chunks as the store fills
+ * up to the configured capacity, so long captures neither grow the heap nor add work for the garbage collector.
+ * The {@link Policy} decides what happens to a new scan once the capacity is reached.
+ * <p>
+ * Slot layout: timestamp (8), starting angle (4), angular resolution (4), scanning frequency (4),
+ * number of points (2), flags (2), sequence number (8), distances (2 each) and remissions (2 each).
+ * All methods are synchronized on the store, which is also the monitor notified whenever a scan is added or removed.
+ */
+public class ScanStore implements Closeable {
+
+    /**
+     * The behaviour of {@link #add(Scan)} when the store is full.
+     */
+    public enum Policy {
+        /** Overwrite the oldest scan. */
+        DROP_OLDEST,
+        /** Move the oldest scans to a temporary file, where they stay readable. */
+        SPILL_TO_DISK,
+        /** Wait until scans are removed by {@link #poll(Scan)} or {@link #clear()}. */
+        BLOCK
+    }
+
+    public static final long DEFAULT_CAPACITY = 256L << 20;
+    public static final int DEFAULT_MAX_POINTS = 1024;
+
+    private static final int CHUNK_SIZE = 4 << 20;
+    private static final int SLOT_HEADER_LENGTH = 32;
+    private static final int TIMESTAMP_OFFSET = 0;
+    private static final int STARTING_ANGLE_OFFSET = 8;
+    private static final int ANGULAR_RESOLUTION_OFFSET = 12;
+    private static final int SCAN_FREQUENCY_OFFSET = 16;
+    private static final int NUMBER_OF_POINTS_OFFSET = 20;
+    private static final int FLAGS_OFFSET = 22;
+    private static final int SEQUENCE_NUMBER_OFFSET = 24;
+    private static final short FLAG_REMISSION = 1;
+
+    private final int maxPoints;
+    private final int slotSize;
+    private final int slotsPerChunk;
+    private final int capacity;
+    private final ByteBuffer[] chunks;
+    private final Policy policy;
+    private final Path spillDirectory;
+
+    private int head = 0;           // Slot of the oldest scan in memory
+    private int count = 0;          // Number of scans in memory
+    private FileChannel spillChannel = null;
+    private ByteBuffer spillBuffer = null;
+    private long spillFirst = 0;    // Record of the oldest scan in the spill file
+    private long spillCount = 0;    // Number of scans in the spill file
+    private long added = 0;
+    private long dropped = 0;
+    private boolean isClosed = false;
+
+    /**
+     * Creates a store that keeps scans in memory only, overwriting the oldest scan when full.
+     *
+     * @param capacity  The maximum number of bytes of off-heap memory.
+     * @param maxPoints The maximum number of points of a scan.
+     */
+    public ScanStore(long capacity, int maxPoints) {
+        this(capacity, maxPoints, Policy.DROP_OLDEST, null);
+    }
+
+    /**
+     * @param capacity       The maximum number of bytes of off-heap memory.
+     * @param maxPoints      The maximum number of points of a scan.
+     * @param policy         The behaviour when the store is full.
+     * @param spillDirectory The directory of the temporary spill file, used only with {@link Policy#SPILL_TO_DISK}.
+     */
+    public ScanStore(long capacity, int maxPoints, Policy policy, Path spillDirectory) {
+        if (policy == Policy.SPILL_TO_DISK && spillDirectory == null) {
+            throw new IllegalArgumentException("Spilling to disk needs a directory");
+        }
+
+        this.maxPoints = maxPoints;
+        this.slotSize = SLOT_HEADER_LENGTH + 4 * maxPoints;
+        this.slotsPerChunk = (int) Math.max(1, Math.min(CHUNK_SIZE, capacity) / slotSize);
+        this.chunks = new ByteBuffer[(int) Math.max(1, capacity / ((long) slotsPerChunk * slotSize))];
+        this.capacity = chunks.length * slotsPerChunk;
+        this.policy = policy;
+        this.spillDirectory = spillDirectory;
+    }
+
+    public Policy getPolicy() {
+        return policy;
+    }
+
+    public int getMaxPoints() {
+        return maxPoints;
+    }
+
+    /**
+     * @return The maximum number of scans kept in memory.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The number of stored scans, including the scans spilled to disk.
+     */
+    public synchronized int size() {
+        return (int) (spillCount + count);
+    }
+
+    public synchronized boolean isEmpty() {
+        return spillCount + count == 0;
+    }
+
+    /**
+     * @return The number of scans added since the store was created.
+     */
+    public synchronized long getAdded() {
+        return added;
+    }
+
+    /**
+     * @return The number of scans that were overwritten or could not be stored.
+     */
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return The number of stored scans that are in the spill file.
+     */
+    public synchronized long getSpilled() {
+        return spillCount;
+    }
+
+    /**
+     * @return The number of bytes of off-heap memory allocated so far.
+     */
+    public synchronized long getMemoryUsed() {
+        long used = 0;
+        for (ByteBuffer chunk : chunks) {
+            if (chunk != null) {
+                used += chunk.capacity();
+            }
+        }
+        return used;
+    }
+
+    /**
+     * Copies a scan into the store. The scan record itself is not retained and may be reused.
+     *
+     * @param scan The scan to store.
+     * @return {@code true} if the scan was stored, {@code false} if it has too many points,
+     *         spilling failed, or waiting for space was interrupted.
+     */
+    public synchronized boolean add(Scan scan) {
+        if (scan.getNumberOfPoints() > maxPoints || isClosed) {
+            dropped++;
+            return false;
+        }
+
+        if (count == capacity && !makeRoom()) {
+            dropped++;
+            return false;
+        }
+
+        int slot = (head + count) % capacity;
+        put(chunk(slot), offset(slot), scan);
+        count++;
+        added++;
+
+        notifyAll();
+        return true;
+    }
+
+    private boolean makeRoom() {
+        switch (policy) {
+            case DROP_OLDEST:
+                head = (head + 1) % capacity;
+                count--;
+                dropped++;
+                return true;
+            case SPILL_TO_DISK:
+                return spill();
+            default:
+                try {
+                    while (count == capacity && !isClosed) {
+                        wait();
+                    }
+                    return !isClosed;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+        }
+    }
+
+    /**
+     * Appends the oldest scans in memory, up to the end of their chunk, to the spill file in one write.
+     */
+    private boolean spill() {
+        int slots = Math.min(slotsPerChunk - head % slotsPerChunk, count);
+
+        try {
+            if (spillChannel == null) {
+                Path path = Files.createTempFile(spillDirectory, "scans", ".spill");
+                spillChannel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                        StandardOpenOption.DELETE_ON_CLOSE);
+            }
+
+            ByteBuffer source = chunk(head).duplicate();
+            source.limit(offset(head) + slots * slotSize).position(offset(head));
+
+            long position = (spillFirst + spillCount) * slotSize;
+            while (source.hasRemaining()) {
+                position += spillChannel.write(source, position);
+            }
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception
+            return false;
+        }
+
+        spillCount += slots;
+        head = (head + slots) % capacity;
+        count -= slots;
+        return true;
+    }
+
+    /**
+     * Reads a stored scan into a new record.
+     *
+     * @param index The index of the scan, 0 for the oldest.
+     * @return The scan.
+     */
+    public Scan get(int index) {
+        return get(index, new Scan(maxPoints));
+    }
+
+    /**
+     * Reads a stored scan into the given record.
+     *
+     * @param index The index of the scan, 0 for the oldest.
+     * @param scan  The scan record to fill.
+     * @return The filled scan record.
+     */
+    public synchronized Scan get(int index, Scan scan) {
+        if (index < 0 || index >= spillCount + count) {
+            throw new IndexOutOfBoundsException("Scan " + index + " of " + (spillCount + count));
+        }
+
+        if (index < spillCount) {
+            readSpilled(spillFirst + index, scan);
+        } else {
+            int slot = (int) ((head + index - spillCount) % capacity);
+            read(chunk(slot), offset(slot), scan);
+        }
+
+        return scan;
+    }
+
+    private void readSpilled(long record, Scan scan) {
+        if (spillBuffer == null) {
+            spillBuffer = ByteBuffer.allocateDirect(slotSize);
+        }
+
+        spillBuffer.clear();
+        try {
+            long position = record * slotSize;
+            while (spillBuffer.hasRemaining()) {
+                int read = spillChannel.read(spillBuffer, position + spillBuffer.position());
+                if (read < 0) {
+                    break; // The last record may end before the slot does
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Reading the spill file failed", e);
+        }
+
+        read(spillBuffer, 0, scan);
+    }
+
+    /**
+     * Removes the oldest scan and reads it into the given record. Makes room for a blocked {@link #add(Scan)}.
+     *
+     * @param scan The scan record to fill.
+     * @return {@code true} if a scan was removed, {@code false} if the store is empty.
+     */
+    public synchronized boolean poll(Scan scan) {
+        if (spillCount + count == 0) {
+            return false;
+        }
+
+        get(0, scan);
+
+        if (spillCount > 0) {
+            spillFirst++;
+            spillCount--;
+        } else {
+            head = (head + 1) % capacity;
+            count--;
+        }
+
+        notifyAll();
+        return true;
+    }
+
+    /**
+     * Removes the newest scans.
+     *
+     * @param n The number of scans to remove, at most all stored scans are removed.
+     */
+    public synchronized void removeLast(int n) {
+        int inMemory = Math.min(n, count);
+        count -= inMemory;
+        spillCount -= Math.min(n - inMemory, spillCount);
+        notifyAll();
+    }
+
+    /**
+     * Removes all scans. The allocated memory is kept for reuse.
+     */
+    public synchronized void clear() {
+        head = 0;
+        count = 0;
+        spillFirst = 0;
+        spillCount = 0;
+
+        if (spillChannel != null) {
+            try {
+                spillChannel.truncate(0);
+            } catch (IOException e) {
+                e.printStackTrace(); // Handle or log the exception
+            }
+        }
+
+        notifyAll();
+    }
+
+    /**
+     * Wakes up a blocked {@link #add(Scan)}, rejects further scans and deletes the spill file.
+     * The scans in memory stay readable.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        isClosed = true;
+        spillCount = 0;
+        notifyAll();
+
+        if (spillChannel != null) {
+            spillChannel.close();
+            spillChannel = null;
+        }
+    }
+
+    private ByteBuffer chunk(int slot) {
+        int index = slot / slotsPerChunk;
+        if (chunks[index] == null) {
+            chunks[index] = ByteBuffer.allocateDirect(slotsPerChunk * slotSize);
+        }
+        return chunks[index];
+    }
+
+    private int offset(int slot) {
+        return (slot % slotsPerChunk) * slotSize;
+    }
+
+    private static void put(ByteBuffer buffer, int offset, Scan scan) {
+        int numberOfPoints = scan.getNumberOfPoints();
+
+        buffer.putLong(offset + TIMESTAMP_OFFSET, scan.getTimestamp());
+        buffer.putInt(offset + STARTING_ANGLE_OFFSET, scan.getStartingAngle());
+        buffer.putInt(offset + ANGULAR_RESOLUTION_OFFSET, scan.getAngularResolution());
+        buffer.putInt(offset + SCAN_FREQUENCY_OFFSET, scan.getScanFrequency());
+        buffer.putShort(offset + NUMBER_OF_POINTS_OFFSET, (short) numberOfPoints);
+        buffer.putShort(offset + FLAGS_OFFSET, scan.hasRemission() ? FLAG_REMISSION : 0);
+        buffer.putLong(offset + SEQUENCE_NUMBER_OFFSET, scan.getSequenceNumber());
+
+        int[] distances = scan.getDistances();
+        int index = offset + SLOT_HEADER_LENGTH;
+        for (int i = 0; i < numberOfPoints; i++, index += 2) {
+            buffer.putShort(index, (short) distances[i]);
+        }
+
+        if (scan.hasRemission()) {
+            int[] remissions = scan.getRemissions();
+            for (int i = 0; i < numberOfPoints; i++, index += 2) {
+                buffer.putShort(index, (short) remissions[i]);
+            }
+        }
+    }
+
+    private static void read(ByteBuffer buffer, int offset, Scan scan) {
+        int numberOfPoints = buffer.getShort(offset + NUMBER_OF_POINTS_OFFSET) & 0xFFFF;
+        boolean hasRemission = (buffer.getShort(offset + FLAGS_OFFSET) & FLAG_REMISSION) != 0;
+
+        scan.setGrid(buffer.getInt(offset + STARTING_ANGLE_OFFSET), buffer.getInt(offset + ANGULAR_RESOLUTION_OFFSET),
+                numberOfPoints, buffer.getInt(offset + SCAN_FREQUENCY_OFFSET));
+        scan.setTimestamp(buffer.getLong(offset + TIMESTAMP_OFFSET));
+        scan.setSequenceNumber(buffer.getLong(offset + SEQUENCE_NUMBER_OFFSET));
+
+        int[] distances = scan.getDistances();
+        int index = offset + SLOT_HEADER_LENGTH;
+        for (int i = 0; i < numberOfPoints; i++, index += 2) {
+            distances[i] = buffer.getShort(index) & 0xFFFF;
+        }
+        scan.updateValidMask();
+
+        scan.setRemission(hasRemission);
+        if (hasRemission) {
+            int[] remissions = scan.getRemissions();
+            for (int i = 0; i < numberOfPoints; i++, index += 2) {
+                remissions[i] = buffer.getShort(index) & 0xFFFF;
+            }
+        }
+    }
+}
@@ -0,0 +1,483 @@
+package sick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives several LMS400 devices from a single thread through one NIO {@link Selector}.
+ * Every device has its own non-blocking connection, telegram reader and command dispatcher;
+ * the event loop reads whatever each connection has available, decodes the scans and passes them to
+ * the {@link DeviceScanListener}s. Because one thread receives every telegram, the merged stream is
+ * ordered by the time the telegrams were received. The devices are connected in parallel by the same loop,
+ * so a device that cannot be reached only leaves itself disconnected.
+ */
+public class ScannerGroup implements Closeable {
+
+    private static final int RECEIVE_BUFFER_SIZE = 1 << 20;
+    private static final long REPLY_TIMEOUT_MS = 5000;
+    private static final long CONNECT_TIMEOUT_MS = 2000;
+    private static final long CONNECT_CHECK_MS = 100; // Longest select while a connection is pending
+
+    /**
+     * A device in the group together with its connection and throughput counters.
+     */
+    public static class Device {
+        private final int id;
+        private final String hostname;
+        private final int port;
+
+        private SocketChannel channel = null;
+        private TelegramReader reader = null;
+        private TelegramWriter writer = null;
+        private final SopasDispatcher dispatcher = new SopasDispatcher();
+        private final Frame frame = new Frame();
+        private final Scan scan = new Scan();
+        private final SequenceTracker sequence = new SequenceTracker(); // Used by the event loop
+        private volatile boolean isSequenceReset = false;
+        private volatile ScanDecoder decoder = new ScanDecoder();
+
+        private volatile boolean isConnected = false;
+        private volatile long connectTime = 0;
+        private boolean isConnecting = false; // Used by the event loop once started
+        private long connectDeadline = 0;
+        private final AtomicLong receivedFrames = new AtomicLong(); // Written by the event loop
+        private final AtomicLong receivedBytes = new AtomicLong();  // Written by the event loop
+        private final AtomicLong decodedScans = new AtomicLong();   // Written by the event loop
+
+        private Device(int id, String hostname, int port) {
+            this.id = id;
+            this.hostname = hostname;
+            this.port = port;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        public String getHostname() {
+            return hostname;
+        }
+
+        public int getPort() {
+            return port;
+        }
+
+        public boolean isConnected() {
+            return isConnected;
+        }
+
+        /**
+         * Sets the measuring range of this device.
+         *
+         * @param minDistance The shortest valid distance in mm.
+         * @param maxDistance The longest valid distance in mm.
+         */
+        public void setDistanceRange(int minDistance, int maxDistance) {
+            decoder = new ScanDecoder(minDistance, maxDistance);
+        }
+
+        public long getReceivedFrames() {
+            return receivedFrames.get();
+        }
+
+        public long getReceivedBytes() {
+            return receivedBytes.get();
+        }
+
+        public long getDecodedScans() {
+            return decodedScans.get();
+        }
+
+        /**
+         * @return The number of measurement telegrams missing from the sequence of scan counters.
+         */
+        public long getLostScans() {
+            return sequence.getLostScans();
+        }
+
+        /**
+         * @return The number of corrupted telegrams and losses of synchronization.
+         */
+        public long getErrors() {
+            TelegramReader reader = this.reader;
+            return reader != null ? reader.getChecksumErrors() + reader.getFramingErrors() : 0;
+        }
+
+        /**
+         * @return The average number of scans per second since connecting.
+         */
+        public double getScansPerSecond() {
+            double seconds = (System.nanoTime() - connectTime) / 1e9;
+            return seconds > 0 ? decodedScans.get() / seconds : 0;
+        }
+
+        /**
+         * @return The average number of bytes per second since connecting.
+         */
+        public double getBytesPerSecond() {
+            double seconds = (System.nanoTime() - connectTime) / 1e9;
+            return seconds > 0 ? receivedBytes.get() / seconds : 0;
+        }
+
+        @Override
+        public String toString() {
+            return "Device " + id + " (" + hostname + ":" + port + ")";
+        }
+    }
+
+    private final List<Device> devices = new ArrayList<>();
+    private final CopyOnWriteArrayList<DeviceScanListener> listeners = new CopyOnWriteArrayList<>();
+
+    private Selector selector = null;
+    private Thread eventLoopThread = null;
+    private volatile boolean isRunning = false;
+    private CountDownLatch pendingConnections = new CountDownLatch(0);
+    private int connectingDevices = 0; // Used by the event loop once started
+
+    /**
+     * Adds a device to the group. Devices must be added before {@link #start()}.
+     *
+     * @param hostname The address of the device.
+     * @param port     The port of the device.
+     * @return The added device.
+     */
+    public synchronized Device addScanner(String hostname, int port) {
+        if (isRunning) {
+            throw new IllegalStateException("Devices must be added before the group is started");
+        }
+
+        Device device = new Device(devices.size(), hostname, port);
+        devices.add(device);
+        return device;
+    }
+
+    public synchronized List<Device> getDevices() {
+        return new ArrayList<>(devices);
+    }
+
+    public void addScanListener(DeviceScanListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeScanListener(DeviceScanListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Connects to every device in parallel and starts the event loop. Returns once every device is connected
+     * or failed to connect within the connect timeout; a device that fails stays disconnected,
+     * see {@link Device#isConnected()}, without affecting the others.
+     *
+     * @throws IOException If the selector cannot be opened.
+     */
+    public synchronized void start() throws IOException {
+        if (isRunning) {
+            return;
+        }
+
+        selector = Selector.open();
+        pendingConnections = new CountDownLatch(devices.size());
+        connectingDevices = 0;
+
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(CONNECT_TIMEOUT_MS);
+        for (Device device : devices) {
+            connect(device, deadline);
+        }
+
+        isRunning = true;
+        eventLoopThread = new Thread(this::eventLoop, "LMS400-group");
+        eventLoopThread.setDaemon(true);
+        eventLoopThread.start();
+
+        try {
+            pendingConnections.await(CONNECT_TIMEOUT_MS + CONNECT_CHECK_MS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Starts connecting to a device without waiting, the event loop finishes the connection.
+     *
+     * @param device   The device.
+     * @param deadline The value of {@link System#nanoTime()} after which the connection attempt fails.
+     */
+    private void connect(Device device, long deadline) {
+        try {
+            InetSocketAddress address = new InetSocketAddress(device.hostname, device.port);
+            if (address.isUnresolved()) {
+                throw new IOException("Cannot resolve " + device.hostname);
+            }
+
+            SocketChannel channel = SocketChannel.open();
+            device.channel = channel;
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            channel.setOption(StandardSocketOptions.SO_RCVBUF, RECEIVE_BUFFER_SIZE);
+            channel.configureBlocking(false);
+
+            if (channel.connect(address)) {
+                channel.register(selector, SelectionKey.OP_READ, device);
+                connected(device);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, device);
+                device.isConnecting = true;
+                device.connectDeadline = deadline;
+                connectingDevices++;
+            }
+        } catch (IOException e) {
+            connectFailed(device, null, e);
+        }
+    }
+
+    private void finishConnect(Device device, SelectionKey key) {
+        try {
+            if (!device.channel.finishConnect()) {
+                return;
+            }
+        } catch (IOException e) {
+            connectFailed(device, key, e);
+            return;
+        }
+
+        device.isConnecting = false;
+        connectingDevices--;
+        key.interestOps(SelectionKey.OP_READ);
+        connected(device);
+    }
+
+    /**
+     * Fails the connection attempts that passed their deadline.
+     */
+    private void expireConnects() {
+        long now = System.nanoTime();
+
+        for (Device device : devices) {
+            if (device.isConnecting && now - device.connectDeadline >= 0) {
+                connectFailed(device, device.channel.keyFor(selector),
+                        new IOException(device + " did not connect within " + CONNECT_TIMEOUT_MS + " ms"));
+            }
+        }
+    }
+
+    private void connected(Device device) {
+        device.reader = new TelegramReader(device.channel);
+        device.writer = new TelegramWriter(device.channel);
+        device.connectTime = System.nanoTime();
+        device.isSequenceReset = true;
+        device.isConnected = true;
+        pendingConnections.countDown();
+    }
+
+    private void connectFailed(Device device, SelectionKey key, IOException cause) {
+        cause.printStackTrace(); // Handle or log the exception
+
+        if (device.isConnecting) {
+            device.isConnecting = false;
+            connectingDevices--;
+        }
+
+        if (key != null) {
+            key.cancel();
+        }
+
+        if (device.channel != null) {
+            try {
+                device.channel.close();
+            } catch (IOException e) {
+                e.printStackTrace(); // Handle or log the exception
+            }
+        }
+
+        pendingConnections.countDown();
+    }
+
+    /**
+     * Sends a SOPAS command to a device without waiting for the answer.
+     *
+     * @param device The device.
+     * @param cmd    The SOPAS command to be sent.
+     * @return The future completed with the answer of the device.
+     */
+    public CompletableFuture<SopasReply> commandAsync(Device device, String cmd) {
+        if (!device.isConnected) {
+            return CompletableFuture.failedFuture(new IOException(device + " is not connected"));
+        }
+
+        CompletableFuture<SopasReply> future;
+
+        synchronized (device.dispatcher) {
+            future = device.dispatcher.register(cmd);
+
+            try {
+                device.writer.write(cmd);
+            } catch (IOException e) {
+                future.completeExceptionally(e);
+            }
+        }
+
+        return future.orTimeout(REPLY_TIMEOUT_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Sends a SOPAS command to every connected device.
+     *
+     * @param cmd The SOPAS command to be sent.
+     * @return The future completed when every device answered.
+     */
+    public CompletableFuture<Void> commandAll(String cmd) {
+        List<CompletableFuture<SopasReply>> futures = new ArrayList<>();
+
+        for (Device device : getDevices()) {
+            futures.add(commandAsync(device, cmd));
+        }
+
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]));
+    }
+
+    public CompletableFuture<Void> startScanning() {
+        for (Device device : getDevices()) {
+            device.isSequenceReset = true; // The device starts counting scans again
+        }
+        return commandAll("sMN mLRreqdata 0020");
+    }
+
+    public CompletableFuture<Void> stopScanning() {
+        return commandAll("sMN mLRstopdata");
+    }
+
+    /**
+     * Event loop. Finishes the pending connections, reads from every ready connection and handles
+     * the complete telegrams.
+     */
+    private void eventLoop() {
+        while (isRunning) {
+            try {
+                selector.select(connectingDevices > 0 ? CONNECT_CHECK_MS : 0);
+            } catch (IOException e) {
+                e.printStackTrace(); // Handle or log the exception
+                break;
+            }
+
+            for (SelectionKey key : selector.selectedKeys()) {
+                Device device = (Device) key.attachment();
+
+                if (key.isValid() && key.isConnectable()) {
+                    finishConnect(device, key);
+                } else if (key.isValid() && key.isReadable()) {
+                    read(device, key);
+                }
+            }
+
+            selector.selectedKeys().clear();
+
+            if (connectingDevices > 0) {
+                expireConnects();
+            }
+        }
+    }
+
+    private void read(Device device, SelectionKey key) {
+        try {
+            if (device.reader.fill() < 0) {
+                disconnect(device, key, new IOException(device + " closed the connection"));
+                return;
+            }
+        } catch (IOException e) {
+            disconnect(device, key, e);
+            return;
+        }
+
+        while (device.reader.poll(device.frame)) {
+            handle(device, device.frame); // The reader skips corrupted telegrams
+        }
+    }
+
+    private void handle(Device device, Frame frame) {
+        device.receivedFrames.lazySet(device.receivedFrames.get() + 1);
+        device.receivedBytes.lazySet(device.receivedBytes.get() + frame.getLength());
+
+        if (!ScanDecoder.isMeasurement(frame)) {
+            device.dispatcher.dispatch(frame);
+            return;
+        }
+
+        if (!device.decoder.decode(frame, device.scan)) {
+            return;
+        }
+
+        device.decodedScans.lazySet(device.decodedScans.get() + 1);
+
+        if (device.isSequenceReset) {
+            device.isSequenceReset = false;
+            device.sequence.reset();
+        }
+
+        device.scan.setSequenceNumber(device.sequence.next((int) device.scan.getSequenceNumber()));
+
+        for (DeviceScanListener listener : listeners) {
+            try {
+                listener.onScan(device, device.scan);
+            } catch (RuntimeException e) {
+                e.printStackTrace(); // Handle or log the exception
+            }
+        }
+    }
+
+    private void disconnect(Device device, SelectionKey key, IOException cause) {
+        key.cancel();
+        device.isConnected = false;
+        device.dispatcher.failAll(cause);
+
+        try {
+            device.channel.close();
+        } catch (IOException e) {
+            e.printStackTrace(); // Handle or log the exception
+        }
+    }
+
+    /**
+     * Stops the event loop and closes every connection.
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        isRunning = false;
+
+        if (selector != null) {
+            selector.wakeup();
+        }
+
+        if (eventLoopThread != null) {
+            try {
+                eventLoopThread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            eventLoopThread = null;
+        }
+
+        for (Device device : devices) {
+            if (device.channel != null) {
+                device.channel.close();
+            }
+            device.isConnected = false;
+            device.dispatcher.failAll(new IOException("Disconnected"));
+        }
+
+        if (selector != null) {
+            selector.close();
+            selector = null;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package sick;
+
+/**
+ * Extends the 16-bit scan counters of consecutive measurement telegrams to a sequence number
+ * that does not wrap around, and counts the telegrams missing between them.
+ * Used by a single thread; the number of lost scans may be read by any thread.
+ */
+final class SequenceTracker {
+
+    private static final int COUNTER_MASK = 0xFFFF;
+
+    private long sequenceNumber = -1;
+    private volatile long lostScans = 0;
+
+    /**
+     * Advances to the scan counter of the next telegram.
+     *
+     * @param scanCounter The scan counter of the telegram, -1 if the telegram carries none.
+     * @return The sequence number of the telegram, or -1 if unknown.
+     */
+    long next(int scanCounter) {
+        if (scanCounter < 0) {
+            return -1;
+        }
+
+        if (sequenceNumber < 0) {
+            sequenceNumber = scanCounter;
+            return sequenceNumber;
+        }
+
+        int step = (scanCounter - (int) sequenceNumber) & COUNTER_MASK;
+
+        if (step > 1) {
+            lostScans += step - 1;
+        }
+
+        sequenceNumber += step;
+        return sequenceNumber;
+    }
+
+    /**
+     * Forgets the last scan counter, for example because the device restarts counting when scanning is started.
+     */
+    void reset() {
+        sequenceNumber = -1;
+    }
+
+    long getLostScans() {
+        return lostScans;
+    }
+}
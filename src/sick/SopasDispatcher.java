@@ -0,0 +1,139 @@
+package sick;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Matches the answers of the device to pending SOPAS commands.
+ * Several commands may be in flight at once. Answers are routed by command name in the order the
+ * commands were sent; a method ("sMN") completes on its "sAN" answer after the "sMA" acknowledgement,
+ * and a fault answer ("sFA"), which carries no name, completes the oldest pending command.
+ */
+public class SopasDispatcher {
+
+    private static class PendingCommand {
+        final String name;
+        final String answerType;
+        final CompletableFuture<SopasReply> future = new CompletableFuture<>();
+        SopasReply acknowledgement = null;
+
+        PendingCommand(String name, String answerType) {
+            this.name = name;
+            this.answerType = answerType;
+        }
+    }
+
+    private final ArrayDeque<PendingCommand> pending = new ArrayDeque<>();
+
+    /**
+     * Registers a command before it is sent.
+     *
+     * @param cmd The SOPAS command, for example "sMN mLRreqdata 0021".
+     * @return The future completed with the answer of the device.
+     */
+    public CompletableFuture<SopasReply> register(String cmd) {
+        PendingCommand command = new PendingCommand(SopasReply.nameOf(cmd), answerTypeOf(SopasReply.typeOf(cmd)));
+
+        synchronized (pending) {
+            pending.add(command);
+        }
+
+        command.future.whenComplete((reply, error) -> remove(command));
+        return command.future;
+    }
+
+    /**
+     * Routes an answer to its pending command.
+     *
+     * @param frame The received telegram.
+     * @return {@code true} if the answer belonged to a pending command, {@code false} if it is unexpected.
+     */
+    public boolean dispatch(Frame frame) {
+        String text = frame.toString();
+        String type = SopasReply.typeOf(text);
+        String name = SopasReply.nameOf(text);
+
+        PendingCommand command = null;
+
+        synchronized (pending) {
+            if ("sFA".equals(type)) {
+                command = pending.peekFirst();
+            } else {
+                for (PendingCommand candidate : pending) {
+                    if (candidate.name.equals(name)) {
+                        command = candidate;
+                        break;
+                    }
+                }
+            }
+
+            if (command == null) {
+                return false;
+            }
+
+            if ("sMA".equals(type) && command.acknowledgement == null) {
+                command.acknowledgement = new SopasReply(text, null);
+                return true;
+            }
+        }
+
+        if ("sFA".equals(type) || type.equals(command.answerType)) {
+            command.future.complete(new SopasReply(text, command.acknowledgement));
+            return true;
+        }
+
+        return false;
+    }
+
+    /**
+     * Fails every pending command, for example when the connection is closed.
+     *
+     * @param cause The reason.
+     */
+    public void failAll(Throwable cause) {
+        PendingCommand[] commands;
+
+        synchronized (pending) {
+            commands = pending.toArray(new PendingCommand[0]);
+            pending.clear();
+        }
+
+        for (PendingCommand command : commands) {
+            command.future.completeExceptionally(cause);
+        }
+    }
+
+    public int getNumberOfPending() {
+        synchronized (pending) {
+            return pending.size();
+        }
+    }
+
+    private void remove(PendingCommand command) {
+        synchronized (pending) {
+            Iterator<PendingCommand> iterator = pending.iterator();
+            while (iterator.hasNext()) {
+                if (iterator.next() == command) {
+                    iterator.remove();
+                    return;
+                }
+            }
+        }
+    }
+
+    private static String answerTypeOf(String commandType) {
+        switch (commandType) {
+            case "sMN":
+                return "sAN";
+            case "sRN":
+                return "sRA";
+            case "sWN":
+                return "sWA";
+            case "sEN":
+                return "sEA";
+            default:
+                return "sAN";
+        }
+    }
+}
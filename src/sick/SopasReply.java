@@ -0,0 +1,81 @@
+package sick;
+
+/**
+ * An answer of the device to a SOPAS command, for example "sAN mLRreqdata 00000000".
+ */
+public class SopasReply {
+
+    private final String text;
+    private final String type;
+    private final String name;
+    private final SopasReply acknowledgement;
+
+    /**
+     * @param text            The ASCII text of the answer.
+     * @param acknowledgement The "sMA" answer that preceded a method answer, or {@code null}.
+     */
+    public SopasReply(String text, SopasReply acknowledgement) {
+        this.text = text;
+        this.type = typeOf(text);
+        this.name = nameOf(text);
+        this.acknowledgement = acknowledgement;
+    }
+
+    /**
+     * @return The type of the answer, for example "sAN", "sMA", "sRA" or "sFA".
+     */
+    public String getType() {
+        return type;
+    }
+
+    /**
+     * @return The name of the command answered, or the error code of a fault answer.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return The text after the name, or an empty string if there is none.
+     */
+    public String getArguments() {
+        int start = 4 + name.length() + 1;
+        return start < text.length() ? text.substring(start) : "";
+    }
+
+    /**
+     * @return The "sMA" answer acknowledging a method before this answer, or {@code null}.
+     */
+    public SopasReply getAcknowledgement() {
+        return acknowledgement;
+    }
+
+    /**
+     * @return {@code true} if the device answered with a SOPAS fault answer ("sFA").
+     */
+    public boolean isError() {
+        return "sFA".equals(type);
+    }
+
+    public boolean isAcknowledgement() {
+        return "sMA".equals(type);
+    }
+
+    static String typeOf(String text) {
+        return text.length() >= 3 ? text.substring(0, 3) : text;
+    }
+
+    static String nameOf(String text) {
+        if (text.length() < 5) {
+            return "";
+        }
+
+        int end = text.indexOf(' ', 4);
+        return end < 0 ? text.substring(4) : text.substring(4, end);
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
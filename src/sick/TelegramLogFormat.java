@@ -0,0 +1,94 @@
+package sick;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Layout of the append-only telegram log written by {@link TelegramRecorder} and read by {@link TelegramLogReader}.
+ * The log keeps every telegram exactly as framed on the wire, so replaying it exercises the same decoding
+ * as the live device.
+ *
+ * <pre>
+ * Header (32 bytes, little-endian):
+ *   magic "LMST" (4), version (2), reserved (2),
+ *   start time in ms since the epoch (8), start time as {@link System#nanoTime()} (8), reserved (8)
+ * Segment, at the start of every recording session appended to the log:
+ *   start time as {@link System#nanoTime()} (8, little-endian), magic "LMSS" (4),
+ *   start time in ms since the epoch (8, little-endian)
+ * Record, one per telegram:
+ *   receive timestamp as {@link System#nanoTime()} (8, little-endian),
+ *   the framed telegram: 4 times STX, length (4, big-endian), payload, checksum (1)
+ * </pre>
+ * Receive timestamps are only comparable within a segment, each session has its own {@link System#nanoTime()} origin.
+ * Version 1 logs have no segments. There is no record count, so a log cut off by a crash is readable
+ * up to its last complete record.
+ */
+final class TelegramLogFormat {
+
+    static final int MAGIC = 0x54534D4C; // "LMST" read as a little-endian int
+    static final short VERSION = 2;
+    static final short VERSION_WITHOUT_SEGMENTS = 1;
+
+    static final int HEADER_LENGTH = 32;
+
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 4;
+    static final int START_TIME_OFFSET = 8;
+    static final int START_NANO_TIME_OFFSET = 16;
+
+    static final int SEGMENT_MAGIC = 0x53534D4C; // "LMSS" read as a little-endian int
+    static final int SEGMENT_LENGTH = 20;
+    static final int SEGMENT_MAGIC_OFFSET = 8;
+    static final int SEGMENT_START_TIME_OFFSET = 12;
+
+    static final int TIMESTAMP_LENGTH = 8;
+    static final int FRAME_HEADER_LENGTH = 8; // 4 times STX and 4 bytes of length
+    static final int CHECKSUM_LENGTH = 1;
+    static final byte STX = 0x02;
+
+    private TelegramLogFormat() {
+    }
+
+    static int recordSize(Frame frame) {
+        return TIMESTAMP_LENGTH + FRAME_HEADER_LENGTH + frame.getLength() + CHECKSUM_LENGTH;
+    }
+
+    /**
+     * Puts the header at the current position of the buffer, which must be in little-endian order.
+     */
+    static void putHeader(ByteBuffer buffer) {
+        int start = buffer.position();
+
+        buffer.putInt(start + MAGIC_OFFSET, MAGIC);
+        buffer.putShort(start + VERSION_OFFSET, VERSION);
+        buffer.putLong(start + START_TIME_OFFSET, System.currentTimeMillis());
+        buffer.putLong(start + START_NANO_TIME_OFFSET, System.nanoTime());
+
+        buffer.position(start + HEADER_LENGTH);
+    }
+
+    /**
+     * Puts the start of a recording session at the current position of the buffer,
+     * which must be in little-endian order.
+     */
+    static void putSegment(ByteBuffer buffer) {
+        buffer.putLong(System.nanoTime());
+        buffer.putInt(SEGMENT_MAGIC);
+        buffer.putLong(System.currentTimeMillis());
+    }
+
+    /**
+     * Puts the record of a telegram at the current position of the buffer, which must be in little-endian order.
+     */
+    static void putRecord(ByteBuffer buffer, Frame frame) {
+        int length = frame.getLength();
+
+        buffer.putLong(frame.getTimestamp());
+        for (int i = 0; i < 4; i++) {
+            buffer.put(STX);
+        }
+        buffer.order(ByteOrder.BIG_ENDIAN).putInt(length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(frame.getData(), 0, length);
+        buffer.put(TelegramReader.checksum(frame.getData(), 0, length));
+    }
+}
@@ -0,0 +1,176 @@
+package sick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static sick.TelegramLogFormat.*;
+
+/**
+ * Reads the telegrams of a telegram log, see {@link TelegramLogFormat}, in the order they were received.
+ * The file is read sequentially through one large direct buffer, so logs of any size are read at disk speed
+ * without growing the heap.
+ * A log appended to by several recording sessions is read as consecutive segments, see {@link #getSegment()}.
+ */
+public class TelegramLogReader implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer;
+    private final short version;
+    private long startTime;
+    private long startNanoTime;
+    private int segment = 0;
+    private boolean isEndOfFile = false;
+
+    public TelegramLogReader(Path path) throws IOException {
+        this(path, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param path       The path of the log.
+     * @param bufferSize The size of the read buffer, larger than the longest telegram.
+     * @throws IOException If the file cannot be read or is not a telegram log.
+     */
+    public TelegramLogReader(Path path, int bufferSize) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.buffer = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.buffer.flip(); // Keep the buffer ready for reading, initially empty
+
+        try {
+            if (!fill(HEADER_LENGTH) || buffer.getInt(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Not a telegram log: " + path);
+            }
+            if (buffer.getShort(VERSION_OFFSET) != VERSION
+                    && buffer.getShort(VERSION_OFFSET) != VERSION_WITHOUT_SEGMENTS) {
+                throw new IOException("Unsupported telegram log version: " + buffer.getShort(VERSION_OFFSET));
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+
+        this.version = buffer.getShort(VERSION_OFFSET);
+        this.startTime = buffer.getLong(START_TIME_OFFSET);
+        this.startNanoTime = buffer.getLong(START_NANO_TIME_OFFSET);
+        buffer.position(HEADER_LENGTH);
+    }
+
+    public short getVersion() {
+        return version;
+    }
+
+    /**
+     * @return The number of segments started up to the last telegram read, 0 before the first segment.
+     *         Receive timestamps of different segments have different origins.
+     */
+    public int getSegment() {
+        return segment;
+    }
+
+    /**
+     * @return The time the segment of the last telegram read was started in ms since the epoch,
+     *         the time the log was created before the first segment.
+     */
+    public long getStartTime() {
+        return startTime;
+    }
+
+    /**
+     * @return The value of {@link System#nanoTime()} of the recording process when the segment of the last
+     *         telegram read was started, the value when the log was created before the first segment.
+     */
+    public long getStartNanoTime() {
+        return startNanoTime;
+    }
+
+    /**
+     * Reads the next telegram.
+     *
+     * @param frame The frame to fill with the payload and the original receive timestamp.
+     * @return {@code true} if a telegram was read, {@code false} at the end of the log or of its last complete record.
+     * @throws IOException If reading fails or the record is corrupted.
+     */
+    public boolean read(Frame frame) throws IOException {
+        if (!fill(TIMESTAMP_LENGTH + FRAME_HEADER_LENGTH)) {
+            return false;
+        }
+
+        int start = buffer.position();
+
+        while (version != VERSION_WITHOUT_SEGMENTS && buffer.getInt(start + SEGMENT_MAGIC_OFFSET) == SEGMENT_MAGIC) {
+            if (!fill(SEGMENT_LENGTH)) {
+                return false; // Segment cut off
+            }
+
+            start = buffer.position();
+            startNanoTime = buffer.getLong(start);
+            startTime = buffer.getLong(start + SEGMENT_START_TIME_OFFSET);
+            segment++;
+            buffer.position(start + SEGMENT_LENGTH);
+
+            if (!fill(TIMESTAMP_LENGTH + FRAME_HEADER_LENGTH)) {
+                return false; // A session without telegrams at the end of the log
+            }
+            start = buffer.position();
+        }
+        for (int i = 0; i < 4; i++) {
+            if (buffer.get(start + TIMESTAMP_LENGTH + i) != STX) {
+                throw new IOException("Corrupted telegram log: missing STX");
+            }
+        }
+
+        int length = buffer.order(ByteOrder.BIG_ENDIAN).getInt(start + TIMESTAMP_LENGTH + 4);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        int recordSize = TIMESTAMP_LENGTH + FRAME_HEADER_LENGTH + length + CHECKSUM_LENGTH;
+        if (length < 0 || recordSize > buffer.capacity()) {
+            throw new IOException("Corrupted telegram log: invalid length " + length);
+        }
+
+        if (!fill(recordSize)) {
+            return false; // Record cut off
+        }
+
+        start = buffer.position();
+        long timestamp = buffer.getLong(start);
+
+        frame.setLength(length);
+        buffer.position(start + TIMESTAMP_LENGTH + FRAME_HEADER_LENGTH);
+        buffer.get(frame.getData(), 0, length);
+        frame.setTimestamp(timestamp);
+
+        if (TelegramReader.checksum(frame.getData(), 0, length) != buffer.get()) {
+            throw new IOException("Corrupted telegram log: checksum mismatch");
+        }
+
+        return true;
+    }
+
+    /**
+     * Reads from the file until at least the given number of bytes is buffered.
+     *
+     * @return {@code true} if the bytes are buffered, {@code false} if the file ends before.
+     */
+    private boolean fill(int needed) throws IOException {
+        while (buffer.remaining() < needed && !isEndOfFile) {
+            buffer.compact();
+            try {
+                isEndOfFile = channel.read(buffer) < 0;
+            } finally {
+                buffer.flip();
+            }
+        }
+        return buffer.remaining() >= needed;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
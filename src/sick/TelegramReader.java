@@ -0,0 +1,205 @@
+package sick;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Splits the byte stream received from the device into telegrams.
+ * Every telegram begins with 4 times STX, 4 bytes of big-endian length, the payload, and ends with a checksum.
+ * The bytes are read into a reusable direct buffer and the payload is copied into a {@link Frame}
+ * without any character decoding.
+ * The reader does not rely on the stream being aligned: it searches for the STX sync pattern and accepts a telegram
+ * only if the length is plausible and the checksum matches. After corruption it resumes the search one byte after
+ * the rejected sync pattern, so a dropped or inserted byte costs only the telegrams it touches.
+ */
+public class TelegramReader {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private static final byte STX = 0x02;
+    private static final int HEADER_LENGTH = 8;   // 4 times STX and 4 bytes of length
+    private static final int CHECKSUM_LENGTH = 1;
+
+    private ReadableByteChannel channel;
+    private final ByteBuffer buffer;
+    private boolean isSynchronized = true;
+
+    private volatile long checksumErrors = 0; // Written by the reading thread only
+    private volatile long framingErrors = 0;  // Written by the reading thread only
+    private volatile long discardedBytes = 0; // Written by the reading thread only
+
+    public TelegramReader(ReadableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public TelegramReader(ReadableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.buffer.flip(); // Keep the buffer ready for reading, initially empty
+    }
+
+    /**
+     * Continues reading from another channel, for example after reconnecting.
+     * Bytes still buffered from the previous channel are discarded, the counters are kept.
+     *
+     * @param channel The channel to read from.
+     */
+    public void setChannel(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.clear().flip();
+        isSynchronized = true;
+    }
+
+    /**
+     * @return The number of telegrams rejected because the checksum did not match.
+     */
+    public long getChecksumErrors() {
+        return checksumErrors;
+    }
+
+    /**
+     * @return The number of times the stream lost synchronization, because of a missing STX or an invalid length.
+     */
+    public long getFramingErrors() {
+        return framingErrors;
+    }
+
+    /**
+     * @return The number of bytes skipped while searching for the next telegram.
+     */
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    /**
+     * Reads the next telegram, blocking until it is complete.
+     *
+     * @param frame The frame to fill with the payload of the telegram.
+     * @return {@code true} if a telegram was read, {@code false} if the end of the stream was reached.
+     * @throws IOException If reading from the channel fails.
+     */
+    public boolean read(Frame frame) throws IOException {
+        while (!poll(frame)) {
+            if (fill() < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads whatever bytes the channel has available into the buffer.
+     * Does not block if the channel is in non-blocking mode.
+     *
+     * @return The number of bytes read, or -1 if the end of the stream was reached.
+     * @throws IOException If reading from the channel fails.
+     */
+    public int fill() throws IOException {
+        buffer.compact();
+        try {
+            return channel.read(buffer);
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    /**
+     * Takes the next telegram out of the bytes already buffered.
+     * Corrupted telegrams and bytes between telegrams are skipped and counted.
+     *
+     * @param frame The frame to fill with the payload of the telegram.
+     * @return {@code true} if a complete telegram was buffered, {@code false} if more bytes are needed.
+     */
+    public boolean poll(Frame frame) {
+        while (buffer.remaining() >= HEADER_LENGTH) {
+            int start = buffer.position();
+
+            if (!isSyncPattern(start)) {
+                lostSync();
+                skipToNextStx(start + 1);
+                continue;
+            }
+
+            int length = buffer.getInt(start + 4);
+
+            if (length < 0 || length > buffer.capacity() - HEADER_LENGTH - CHECKSUM_LENGTH) {
+                lostSync();
+                skip(start, 1); // The sync pattern may begin at the next byte
+                continue;
+            }
+
+            if (buffer.remaining() < HEADER_LENGTH + length + CHECKSUM_LENGTH) {
+                return false;
+            }
+
+            // Copy payload
+            frame.setLength(length);
+            buffer.position(start + HEADER_LENGTH);
+            buffer.get(frame.getData(), 0, length);
+
+            // Verify checksum
+            byte expected = buffer.get();
+            if (checksum(frame.getData(), 0, length) != expected) {
+                checksumErrors++;
+                isSynchronized = false; // Counted as a checksum error, not as a framing error
+                skip(start, 1);
+                continue;
+            }
+
+            frame.setTimestamp(System.nanoTime());
+            isSynchronized = true;
+            return true;
+        }
+
+        return false;
+    }
+
+    private boolean isSyncPattern(int start) {
+        for (int i = 0; i < 4; i++) {
+            if (buffer.get(start + i) != STX) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void lostSync() {
+        if (isSynchronized) {
+            isSynchronized = false;
+            framingErrors++;
+        }
+    }
+
+    /**
+     * Skips to the next STX byte, or to the end of the buffered bytes if there is none.
+     */
+    private void skipToNextStx(int from) {
+        int index = from;
+        while (index < buffer.limit() && buffer.get(index) != STX) {
+            index++;
+        }
+        skip(buffer.position(), index - buffer.position());
+    }
+
+    private void skip(int start, int count) {
+        buffer.position(start + count);
+        discardedBytes += count;
+    }
+
+    /**
+     * Calculates the checksum of a telegram, which is the XOR of all payload bytes.
+     *
+     * @param data   The array holding the payload.
+     * @param offset The offset of the payload.
+     * @param length The length of the payload.
+     * @return The checksum.
+     */
+    public static byte checksum(byte[] data, int offset, int length) {
+        byte checksum = 0;
+        for (int i = offset; i < offset + length; i++) {
+            checksum ^= data[i];
+        }
+        return checksum;
+    }
+}
@@ -0,0 +1,187 @@
+package sick;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static sick.TelegramLogFormat.*;
+
+/**
+ * Appends every received telegram with its receive timestamp to a telegram log, see {@link TelegramLogFormat}.
+ * Like {@link ScanRecorder}, telegrams are copied into one of two large buffers on the acquisition thread
+ * while a writer thread writes the other one, so the acquisition thread never waits for disk I/O;
+ * if both buffers are busy, the telegram is dropped and counted.
+ */
+public class TelegramRecorder implements Closeable {
+
+    public static final int DEFAULT_BUFFER_SIZE = 4 << 20;
+
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private final FileChannel channel;
+    private final BlockingQueue<ByteBuffer> free = new ArrayBlockingQueue<>(2);
+    private final BlockingQueue<ByteBuffer> full = new ArrayBlockingQueue<>(3);
+    private final Thread writerThread;
+
+    private final AtomicLong recordedTelegrams = new AtomicLong();
+    private final AtomicLong droppedTelegrams = new AtomicLong();
+    private final AtomicLong writtenBytes = new AtomicLong();
+    private volatile IOException error = null;
+
+    private ByteBuffer front; // Owned by the thread calling record
+
+    /**
+     * Opens a log for appending, writing the header if the file is new or empty,
+     * and starts a new segment with the time base of this session.
+     *
+     * @param path       The path of the log.
+     * @param bufferSize The size of each of the two buffers in bytes.
+     * @throws IOException If the file cannot be opened or is not a telegram log of the current version.
+     */
+    public TelegramRecorder(Path path, int bufferSize) throws IOException {
+        if (Files.exists(path) && Files.size(path) > 0) {
+            try (TelegramLogReader log = new TelegramLogReader(path)) { // Checks the header of the existing log
+                if (log.getVersion() != VERSION) {
+                    throw new IOException("Cannot append to telegram log version " + log.getVersion() + ": " + path);
+                }
+            }
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND);
+
+        this.front = ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN);
+        this.free.add(ByteBuffer.allocateDirect(bufferSize).order(ByteOrder.LITTLE_ENDIAN));
+
+        if (channel.size() == 0) {
+            putHeader(front);
+        }
+        putSegment(front);
+
+        this.writerThread = new Thread(this::writeBuffers, "LMS400-telegram-recorder");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    /**
+     * Copies the telegram into the current buffer. Called by a single thread, usually the acquisition thread.
+     *
+     * @param frame The received telegram.
+     */
+    public void record(Frame frame) {
+        int recordSize = recordSize(frame);
+
+        if (recordSize > front.capacity()) {
+            droppedTelegrams.incrementAndGet();
+            return;
+        }
+
+        if (front.remaining() < recordSize && !swap()) {
+            return;
+        }
+
+        putRecord(front, frame);
+        recordedTelegrams.incrementAndGet();
+    }
+
+    /**
+     * Hands the current buffer to the writer thread and takes the free one.
+     *
+     * @return {@code true} if swapped, {@code false} if the writer still holds the other buffer
+     *         and the telegram was dropped.
+     */
+    private boolean swap() {
+        ByteBuffer next = free.poll();
+
+        if (next == null) {
+            droppedTelegrams.incrementAndGet();
+            return false;
+        }
+
+        full.add(front);
+        front = next;
+        return true;
+    }
+
+    /**
+     * Writer loop. Appends full buffers to the log and returns them to the free queue.
+     */
+    private void writeBuffers() {
+        try {
+            while (true) {
+                ByteBuffer buffer = full.take();
+
+                if (buffer == END) {
+                    break;
+                }
+
+                try {
+                    buffer.flip();
+                    while (buffer.hasRemaining()) {
+                        writtenBytes.addAndGet(channel.write(buffer));
+                    }
+                } catch (IOException e) {
+                    error = e;
+                    e.printStackTrace(); // Handle or log the exception
+                } finally {
+                    buffer.clear();
+                    free.add(buffer);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long getRecordedTelegrams() {
+        return recordedTelegrams.get();
+    }
+
+    /**
+     * @return The number of telegrams dropped because the writer did not keep up.
+     */
+    public long getDroppedTelegrams() {
+        return droppedTelegrams.get();
+    }
+
+    public long getWrittenBytes() {
+        return writtenBytes.get();
+    }
+
+    /**
+     * @return The last error of the writer thread, or {@code null} if writing succeeded.
+     */
+    public IOException getError() {
+        return error;
+    }
+
+    /**
+     * Writes the remaining telegrams and closes the log.
+     * Must not be called concurrently with {@link #record(Frame)}.
+     */
+    @Override
+    public void close() throws IOException {
+        full.add(front);
+        full.add(END);
+
+        try {
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            channel.close();
+        }
+
+        if (error != null) {
+            throw error;
+        }
+    }
+}
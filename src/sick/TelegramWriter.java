@@ -0,0 +1,63 @@
+package sick;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Frames commands and writes them to the device.
+ * Every frame begins with 4 times STX, 4 bytes of big-endian length, the command, and ends with a checksum.
+ * The frame is built in a reusable direct buffer and sent with a single write.
+ */
+public class TelegramWriter {
+
+    public static final int DEFAULT_BUFFER_SIZE = 1024;
+
+    private static final byte STX = 0x02;
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    public TelegramWriter(WritableByteChannel channel) {
+        this(channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    public TelegramWriter(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+    }
+
+    /**
+     * Sends a command frame.
+     *
+     * @param cmd The ASCII command to be sent.
+     * @throws IOException If writing fails or the command does not fit in the buffer.
+     */
+    public synchronized void write(String cmd) throws IOException {
+        int length = cmd.length();
+
+        if (length + 9 > buffer.capacity()) {
+            throw new IOException("Command too long: " + length);
+        }
+
+        buffer.clear();
+
+        for (int i = 0; i < 4; i++) {
+            buffer.put(STX);
+        }
+        buffer.putInt(length);
+
+        byte checksum = 0;
+        for (int i = 0; i < length; i++) {
+            byte b = (byte) cmd.charAt(i);
+            buffer.put(b);
+            checksum ^= b;
+        }
+        buffer.put(checksum);
+
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
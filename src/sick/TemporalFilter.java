@@ -0,0 +1,97 @@
+package sick;
+
+/**
+ * Averages every beam over the last scans with exponentially decreasing weights, reducing the noise of
+ * surfaces that stay in place, such as the conveyor belt or a stopped object.
+ * The last scans are kept in a ring buffer; only the valid distances of a beam are averaged,
+ * and a beam invalid in the current scan stays invalid, so objects that leave do not linger.
+ * Older distances that differ too much from the current one are left out, so moving edges are not smeared.
+ */
+public class TemporalFilter implements ScanFilter {
+
+    private final int depth;
+    private final int maxDifference;
+    private final double[] weights;
+
+    private int[][] history = new int[0][];
+    private int numberOfPoints = -1;
+    private int newest = -1;
+    private int filled = 0;
+
+    /**
+     * @param depth         The number of scans averaged, including the current one, at least 2.
+     * @param alpha         The weight of the current scan, from 0 (exclusive) to 1; each older scan weighs
+     *                      {@code 1 - alpha} times the next newer one.
+     * @param maxDifference The largest difference in mm of an older distance to the current one that is still
+     *                      averaged.
+     */
+    public TemporalFilter(int depth, double alpha, int maxDifference) {
+        if (depth < 2 || alpha <= 0 || alpha > 1) {
+            throw new IllegalArgumentException("Invalid depth " + depth + " or alpha " + alpha);
+        }
+        this.depth = depth;
+        this.maxDifference = maxDifference;
+        this.weights = new double[depth];
+
+        double weight = alpha;
+        for (int age = 0; age < depth; age++) {
+            weights[age] = weight;
+            weight *= 1 - alpha;
+        }
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    @Override
+    public void filter(int[] distances, int numberOfPoints) {
+        if (numberOfPoints != this.numberOfPoints) {
+            resize(numberOfPoints); // A new grid, the history no longer matches
+        }
+
+        newest = (newest + 1) % depth;
+        System.arraycopy(distances, 0, history[newest], 0, numberOfPoints);
+        if (filled < depth) {
+            filled++;
+        }
+
+        for (int i = 0; i < numberOfPoints; i++) {
+            int distance = distances[i];
+            if (distance == 0) {
+                continue;
+            }
+
+            double sum = weights[0] * distance;
+            double weightSum = weights[0];
+            int slot = newest;
+
+            for (int age = 1; age < filled; age++) {
+                slot = slot == 0 ? depth - 1 : slot - 1;
+                int older = history[slot][i];
+
+                if (older != 0 && Math.abs(older - distance) <= maxDifference) {
+                    sum += weights[age] * older;
+                    weightSum += weights[age];
+                }
+            }
+
+            distances[i] = (int) Math.round(sum / weightSum);
+        }
+    }
+
+    private void resize(int numberOfPoints) {
+        if (history.length == 0 || history[0].length < numberOfPoints) {
+            history = new int[depth][numberOfPoints];
+        }
+        this.numberOfPoints = numberOfPoints;
+        newest = -1;
+        filled = 0;
+    }
+
+    @Override
+    public void reset() {
+        newest = -1;
+        filled = 0;
+    }
+}